@@ -0,0 +1,62 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.web.CachedBodyHttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение тела запроса Jackson'ом напрямую и через CachedBodyHttpServletRequest (запрос в выборке
+ * лога). Разница — цена тройника: буфер префикса и копия первых limit байт. cachedBody() входит
+ * в замер — это строка, которая уходит в MDC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CachedBodyRequestBenchmark {
+
+    @Param({"64", "4096"})
+    int bodySize;
+
+    @Param({"256", "1024"})
+    int limit;
+
+    // как ObjectMapper Spring Boot: лишние поля (pad) не ошибка
+    private final ObjectMapper om = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("{\"showId\":\"got\",\"targetSeason\":2,\"immersion\":3,\"language\":\"en\",\"pad\":\"");
+        while (sb.length() < bodySize - 2) sb.append('x');
+        body = sb.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+        req.setContentType("application/json");
+        req.setContent(body);
+        return req;
+    }
+
+    @Benchmark
+    public RecommendationRequest direct() throws IOException {
+        return om.readValue(request().getInputStream(), RecommendationRequest.class);
+    }
+
+    @Benchmark
+    public String wrapped() throws IOException {
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(), limit);
+        om.readValue(req.getInputStream(), RecommendationRequest.class);
+        return req.cachedBody();
+    }
+}
@@ -0,0 +1,115 @@
+package com.tes.api.bench;
+
+import com.tes.api.engine.ArcCoverageIndex;
+import com.tes.api.engine.CoveragePlanner;
+import com.tes.api.engine.Episode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Жадный выбор по сезону из {@code catalogSize} кандидатов (худший случай: весь каталог в одном сезоне).
+ * stringSets — как ml/coverage.py: множество строк арок пересобирается для каждого кандидата
+ * на каждой итерации; packedIndex — интернированные id и popcount по long[] (CoveragePlanner).
+ * Аллокации на вызов: gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoveragePlannerBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    int catalogSize;
+
+    /** Словарь арок сериала; 512 → маска в 8 long'ов. */
+    @Param({"512"})
+    int arcVocabulary;
+
+    static final int ARCS_PER_EPISODE = 4;
+    static final int REQUIRED_ARCS = 24;
+    static final int IMMERSION = 5;
+
+    private List<Episode> episodes;
+    private int[] candidates;
+    private float[] scores;
+    private Set<String> required;
+
+    private ArcCoverageIndex index;
+    private CoveragePlanner.Scratch scratch;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(42);
+        episodes = new ArrayList<>(catalogSize);
+        scores = new float[catalogSize];
+        for (int i = 0; i < catalogSize; i++) {
+            List<String> arcs = new ArrayList<>(ARCS_PER_EPISODE);
+            for (int a = 0; a < ARCS_PER_EPISODE; a++) {
+                arcs.add("arc-" + rnd.nextInt(arcVocabulary));
+            }
+            episodes.add(new Episode("", 1, i + 1, "Episode " + i, "", List.copyOf(arcs)));
+            // убывающий score: candidates уже отсортированы, как их отдаёт ранжирование
+            scores[i] = 1f - (float) i / catalogSize;
+        }
+        candidates = new int[catalogSize];
+        for (int i = 0; i < catalogSize; i++) candidates[i] = i;
+
+        required = new HashSet<>();
+        while (required.size() < REQUIRED_ARCS) {
+            required.add("arc-" + rnd.nextInt(arcVocabulary));
+        }
+
+        index = ArcCoverageIndex.build(episodes);
+        scratch = new CoveragePlanner.Scratch(index.stride(), catalogSize);
+    }
+
+    @Benchmark
+    public void packedIndex(Blackhole bh) {
+        int n = CoveragePlanner.selectForSeason(candidates, scores, index, required, IMMERSION, scratch);
+        bh.consume(n);
+        bh.consume(scratch.selected(0));
+    }
+
+    @Benchmark
+    public List<Episode> stringSets() {
+        int cap = CoveragePlanner.maxPerSeason(IMMERSION);
+        Set<String> uncovered = new HashSet<>(required);
+        List<Integer> remaining = new ArrayList<>(catalogSize);
+        for (int c : candidates) remaining.add(c);
+        List<Episode> selected = new ArrayList<>(cap);
+
+        while (!remaining.isEmpty() && selected.size() < cap && (!uncovered.isEmpty() || required.isEmpty())) {
+            int bestIdx = -1;
+            int bestGain = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                int ep = remaining.get(i);
+                Set<String> arcs = new HashSet<>(episodes.get(ep).arcs());
+                int gain = 0;
+                if (!uncovered.isEmpty()) {
+                    arcs.retainAll(uncovered);
+                    gain = arcs.size();
+                }
+                if (gain > bestGain || (gain == bestGain && scores[ep] > bestScore)) {
+                    bestGain = gain;
+                    bestScore = scores[ep];
+                    bestIdx = i;
+                }
+            }
+            if (bestIdx == -1) break;
+            Episode ep = episodes.get(remaining.remove(bestIdx));
+            selected.add(ep);
+            ep.arcs().forEach(uncovered::remove);
+        }
+        return selected;
+    }
+}
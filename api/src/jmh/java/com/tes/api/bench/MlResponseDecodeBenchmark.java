@@ -0,0 +1,65 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlRecommendation;
+import com.tes.api.dto.RecommendationResponse;
+import com.tes.api.service.impl.RecommendationServiceHttp;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Декодирование ответа ML: старый путь (Map → convertValue) против типизированного DTO.
+ * seasons × perSeason покрывает got (7 сезонов, immersion 1..5) и длинные сериалы.
+ * Аллокации: колонка gc.alloc.rate.norm (профайлер gc включён в профиле jmh).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MlResponseDecodeBenchmark {
+
+    @Param({"7", "30"})
+    int seasons;
+
+    @Param({"1", "6"})
+    int perSeason;
+
+    private final ObjectMapper om = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<Integer, List<MlRecommendation.MlEpisode>> recs = new LinkedHashMap<>();
+        for (int s = 1; s <= seasons; s++) {
+            List<MlRecommendation.MlEpisode> eps = new ArrayList<>();
+            for (int e = 1; e <= perSeason; e++) {
+                eps.add(new MlRecommendation.MlEpisode("S" + s + "E" + e, s, e, "Episode title " + s + "x" + e,
+                        List.of("Stark Family", "War of the Five Kings", "Politics in King's Landing")));
+            }
+            recs.put(s, eps);
+        }
+        body = om.writeValueAsBytes(new MlRecommendation(recs));
+    }
+
+    @Benchmark
+    public RecommendationResponse mapThenConvertValue() throws IOException {
+        Map<?, ?> raw = om.readValue(body, Map.class);
+        Map<Integer, List<RecommendationResponse.MinimalEpisode>> recs =
+                om.convertValue(raw.get("recommendations"), new TypeReference<>() {});
+        return new RecommendationResponse(recs);
+    }
+
+    @Benchmark
+    public RecommendationResponse typedDecode() throws IOException {
+        return RecommendationServiceHttp.toResponse(om.readValue(body, MlRecommendation.class));
+    }
+}
@@ -0,0 +1,97 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.tes.api.client.MlRecommendation;
+import com.tes.api.client.MlResponseDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ ML в JSON и CBOR на каталогах разного размера: разбор из готового массива байтов
+ * и потоковый разбор MlResponseDecoder (тело приходит кусками по 16 КБ).
+ * Размер разбираемого тела — вторичная метрика bodyBytes; аллокации — gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MlTransportBenchmark {
+
+    private static final int CHUNK = 16 * 1024;
+
+    /** Эпизодов в каждом из 10 сезонов ответа. */
+    @Param({"6", "60", "600"})
+    int perSeason;
+
+    private final ObjectReader jsonReader = new ObjectMapper().readerFor(MlRecommendation.class);
+    private final ObjectReader cborReader = new CBORMapper().readerFor(MlRecommendation.class);
+    private byte[] json;
+    private byte[] cbor;
+
+    /** Размер тела рядом со временем в отчёте JMH (печать в @Setup теряется в выводе форка). */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Body {
+        public long bodyBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<Integer, List<MlRecommendation.MlEpisode>> recs = new LinkedHashMap<>();
+        for (int s = 1; s <= 10; s++) {
+            List<MlRecommendation.MlEpisode> eps = new ArrayList<>(perSeason);
+            for (int e = 1; e <= perSeason; e++) {
+                eps.add(new MlRecommendation.MlEpisode("S" + s + "E" + e, s, e, "Episode title " + s + "x" + e,
+                        List.of("Stark Family", "War of the Five Kings", "Politics in King's Landing")));
+            }
+            recs.put(s, eps);
+        }
+        MlRecommendation ml = new MlRecommendation(recs);
+        json = new ObjectMapper().writeValueAsBytes(ml);
+        cbor = new CBORMapper().writeValueAsBytes(ml);
+    }
+
+    @Benchmark
+    public MlRecommendation jsonBuffered(Body body) throws IOException {
+        body.bodyBytes = json.length;
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public MlRecommendation cborBuffered(Body body) throws IOException {
+        body.bodyBytes = cbor.length;
+        return cborReader.readValue(cbor);
+    }
+
+    @Benchmark
+    public MlRecommendation jsonStreamed(Body body) {
+        body.bodyBytes = json.length;
+        return MlResponseDecoder.decode(chunks(json), jsonReader).block();
+    }
+
+    @Benchmark
+    public MlRecommendation cborStreamed(Body body) {
+        body.bodyBytes = cbor.length;
+        return MlResponseDecoder.decode(chunks(cbor), cborReader).block();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes) {
+        return Flux.range(0, (bytes.length + CHUNK - 1) / CHUNK)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(
+                        Arrays.copyOfRange(bytes, i * CHUNK, Math.min(bytes.length, (i + 1) * CHUNK))));
+    }
+}
@@ -0,0 +1,60 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.web.GlobalExceptionHandler;
+import com.tes.api.web.RateLimitExceededException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ об ошибке от GlobalExceptionHandler: локаль, сообщение из messages_*.properties,
+ * TesProblemResponse с UUID и запись тела Jackson'ом (как MappingJackson2HttpMessageConverter).
+ * Взяты обработчики без лога (400, 429), чтобы замерять сборку ответа, а не аппендер.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProblemResponseBenchmark {
+
+    @Param({"en", "ru"})
+    String language;
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/recommendations");
+    private final IllegalArgumentException badRequest = new IllegalArgumentException("targetSeason must be >= 1");
+    private final RateLimitExceededException rateLimited = new RateLimitExceededException("ip");
+    private GlobalExceptionHandler handler;
+
+    @Setup
+    public void setUp() {
+        ResourceBundleMessageSource messages = new ResourceBundleMessageSource();
+        messages.setBasename("messages/messages");
+        messages.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        messages.setFallbackToSystemLocale(false);
+        handler = new GlobalExceptionHandler(messages);
+        request.addHeader("Accept-Language", language);
+    }
+
+    @Benchmark
+    public void badRequest() throws IOException {
+        ResponseEntity<?> entity = handler.handleBadRequest(request, badRequest);
+        om.writeValue(out, entity.getBody());
+    }
+
+    @Benchmark
+    public void rateLimited() throws IOException {
+        ResponseEntity<?> entity = handler.handleRateLimit(request, rateLimited);
+        om.writeValue(out, entity.getBody());
+    }
+}
@@ -0,0 +1,101 @@
+package com.tes.api.bench;
+
+import com.tes.api.client.MlCallCounter;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.web.filters.Bucket4jRateLimiter;
+import com.tes.api.web.filters.RateLimitFilter;
+import com.tes.api.web.filters.RateLimitPolicy;
+import com.tes.api.web.filters.RateLimitTier;
+import com.tes.api.web.filters.RateLimiterBackend;
+import com.tes.api.web.filters.StripedRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропущенный запрос через RateLimitFilter.doFilterInternal: уровни ip + key, заголовки X-RateLimit-*,
+ * метрики, доплата за один вызов ML после цепочки. Лимит не исчерпывается (отказы —
+ * RateLimitRejectionBenchmark). Аллокации на запрос: gc.alloc.rate.norm; mock-запрос/ответ — в обеих
+ * вариациях, различие — только бэкенд.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimitFilterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Filter {
+        @Param({"bucket4j", "sketch"})
+        String backend;
+
+        RateLimitFilter filter;
+
+        /** Контроллер, сходивший в ML один раз (как RecommendationServiceHttp на промахе кэша). */
+        final FilterChain callsMl = (rq, rs) -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes((HttpServletRequest) rq));
+            try {
+                MlCallCounter.record();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+
+        @Setup
+        public void setUp() {
+            filter = new RateLimitFilter(
+                    new RateLimitPolicy(
+                            List.of(new RateLimitTier("ip", RateLimitTier.Scope.IP, limiter()),
+                                    new RateLimitTier("key", RateLimitTier.Scope.API_KEY, limiter())),
+                            Map.of("/recommendations:batch", 5L), 1, 1, "X-API-Key"),
+                    new SimpleMeterRegistry(), StageTimers.disabled(), 1000);
+        }
+
+        private RateLimiterBackend limiter() {
+            // ёмкость с запасом на весь прогон: каждый вызов проходит
+            return switch (backend) {
+                case "bucket4j" -> new Bucket4jRateLimiter(1L << 40, Duration.ofHours(1), 10_000);
+                case "sketch" -> new StripedRateLimiter(1L << 40, Duration.ofHours(1), 1 << 16, 4);
+                default -> throw new IllegalArgumentException(backend);
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        String ip;
+        String apiKey;
+
+        @Setup
+        public void setUp() {
+            int n = ThreadLocalRandom.current().nextInt(1 << 16);
+            ip = "10.1." + (n >> 8) + "." + (n & 255);
+            apiKey = "key-" + n;
+        }
+    }
+
+    @Benchmark
+    public int allowed(Filter f, Exchange x) throws ServletException, IOException {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+        req.setRemoteAddr(x.ip);
+        req.addHeader("X-API-Key", x.apiKey);
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        f.filter.doFilter(req, resp, f.callsMl);
+        return resp.getStatus();
+    }
+}
@@ -0,0 +1,101 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.web.TesErrorCode;
+import com.tes.api.web.TesProblemResponse;
+import com.tes.api.web.filters.RateLimitFilter;
+import com.tes.api.web.filters.RateLimitPolicy;
+import com.tes.api.web.filters.RateLimitTier;
+import com.tes.api.web.filters.StripedRateLimiter;
+import jakarta.servlet.FilterChain;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Флуд с одного IP, лимит исчерпан: каждый вызов — отказ 429.
+ * templated — RateLimitFilter (готовые байты, счётчик вместо UUID); jacksonPerRejection — прежняя отбивка
+ * (TesProblemResponse + UUID + ObjectMapper + String.valueOf заголовков) на тех же mock-объектах.
+ * Разница gc.alloc.rate.norm между ними — то, что убрано с пути отказа (mock-запрос/ответ аллоцируют в обоих).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimitRejectionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Filter {
+        final RateLimitFilter filter = new RateLimitFilter(
+                new RateLimitPolicy(
+                        List.of(new RateLimitTier("ip", RateLimitTier.Scope.IP,
+                                new StripedRateLimiter(1, Duration.ofHours(1), 1 << 16, 4))),
+                        Map.of(), 1, 0, "X-API-Key"),
+                new SimpleMeterRegistry(), StageTimers.disabled(), 1_000_000);
+        final ObjectMapper om = new ObjectMapper();
+        final FilterChain chain = (req, resp) -> {
+            throw new IllegalStateException("limit must be exhausted");
+        };
+
+        @Setup
+        public void exhaust() throws ServletException, IOException {
+            MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+            req.setRemoteAddr("203.0.113.7");
+            filter.doFilter(req, new MockHttpServletResponse(), (rq, rs) -> { });
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        final MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+        final MockHttpServletResponse resp = new MockHttpServletResponse();
+
+        @Setup
+        public void setUp() {
+            req.setRemoteAddr("203.0.113.7");
+        }
+    }
+
+    @Benchmark
+    public int templated(Filter f, Exchange x) throws ServletException, IOException {
+        x.resp.reset();
+        f.filter.doFilter(x.req, x.resp, f.chain);
+        return x.resp.getStatus();
+    }
+
+    @Benchmark
+    public int jacksonPerRejection(Filter f, Exchange x) throws IOException {
+        x.resp.reset();
+        x.resp.setHeader("X-RateLimit-Limit", String.valueOf(1L));
+        x.resp.setHeader("X-RateLimit-Remaining", String.valueOf(0L));
+        x.resp.setHeader("X-RateLimit-Reset", String.valueOf(3599L));
+        x.resp.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        x.resp.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        String title = "Too many requests, please slow down";
+        TesProblemResponse body = new TesProblemResponse(
+                "https://tes.dev/errors/" + TesErrorCode.TES_003.code.toLowerCase(),
+                title,
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                title,
+                x.req.getRequestURI(),
+                TesErrorCode.TES_003.code,
+                UUID.randomUUID().toString()
+        );
+        f.om.writeValue(x.resp.getOutputStream(), body);
+        return x.resp.getStatus();
+    }
+}
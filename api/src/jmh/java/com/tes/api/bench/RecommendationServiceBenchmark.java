@@ -0,0 +1,107 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.AdaptiveConcurrencyLimiter;
+import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.engine.ShowDatasetHolder;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.service.AnswerTableService;
+import com.tes.api.service.LastKnownGoodStore;
+import com.tes.api.service.PersistentResponseStore;
+import com.tes.api.service.impl.RecommendationServiceHttp;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecommendationServiceHttp.recommend без сети: MlClient подменён заглушкой, которая сразу
+ * возвращает готовый ответ. cacheHit — горячий ключ из Caffeine (готовые байты, без Jackson);
+ * cacheMiss — кэш выключен, каждый вызов проходит load: ML → DTO → JSON → LastKnownGoodStore.
+ * Стоимость самого ML-вызова — MlTransportBenchmark и MlResponseDecodeBenchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationServiceBenchmark {
+
+    @Param({"7", "30"})
+    int seasons;
+
+    private final RecommendationRequest request = new RecommendationRequest("got", 8, 3, "en");
+    private RecommendationServiceHttp cached;
+    private RecommendationServiceHttp uncached;
+
+    /** MlClient без сети: WebClient создаётся, но не используется. */
+    static final class StubMlClient extends MlClient {
+        private final CompletableFuture<MlRecommendation> answer;
+
+        StubMlClient(MlRecommendation answer) {
+            super(new AdaptiveConcurrencyLimiter(64, 1, 64, Duration.ofSeconds(1), 0.9),
+                    CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry(), HttpClient.create(),
+                    "http://ml.invalid", List.of(), false, 0.95, Duration.ofMillis(500), Duration.ofMillis(20), "json");
+            this.answer = CompletableFuture.completedFuture(answer);
+        }
+
+        @Override
+        public CompletableFuture<MlRecommendation> recommendAsync(Map<String, Object> payload) {
+            return answer;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Map<Integer, List<MlRecommendation.MlEpisode>> recs = new LinkedHashMap<>();
+        for (int s = 1; s <= seasons; s++) {
+            List<MlRecommendation.MlEpisode> eps = new ArrayList<>();
+            for (int e = 1; e <= 3; e++) {
+                eps.add(new MlRecommendation.MlEpisode("S" + s + "E" + e, s, e, "Episode title " + s + "x" + e,
+                        List.of("Stark Family", "War of the Five Kings")));
+            }
+            recs.put(s, eps);
+        }
+        MlClient ml = new StubMlClient(new MlRecommendation(recs));
+        cached = service(ml, true);
+        uncached = service(ml, false);
+        cached.recommend(request);
+    }
+
+    private static RecommendationServiceHttp service(MlClient ml, boolean cacheEnabled) {
+        ObjectMapper om = new ObjectMapper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ShowDatasetHolder datasets = new ShowDatasetHolder(new ByteArrayResource(new byte[0]));
+        return new RecommendationServiceHttp(ml,
+                new AnswerTableService(ml, datasets, om, false, 1), datasets, om, registry,
+                StageTimers.disabled(), new LastKnownGoodStore(10_000),
+                new PersistentResponseStore(om, registry, false, "unused", DataSize.ofBytes(0),
+                        Duration.ofHours(1), 1, Clock.systemUTC()),
+                false, cacheEnabled, 10_000, Duration.ofHours(1), Duration.ofMinutes(10));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> cacheHit() {
+        return cached.recommend(request);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> cacheMiss() {
+        return uncached.recommend(request);
+    }
+}
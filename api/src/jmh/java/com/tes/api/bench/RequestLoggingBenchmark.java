@@ -0,0 +1,100 @@
+package com.tes.api.bench;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.web.RequestLoggingFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость лога запроса в потоке запроса. Аппендер — заглушка, которая делает только то, что
+ * AsyncAppender делает до постановки в очередь (prepareForDeferredProcessing: сообщение + копия MDC).
+ * legacy — прежний фильтр: тело копируется в byte[] дважды, String, конкатенация, INFO на каждый запрос.
+ * sampledAll — новый фильтр с выборкой 1.0 (тело до max-body); sampledDefault — выборка 0.01.
+ * Контроллер в обоих случаях дочитывает тело, как Jackson.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestLoggingBenchmark {
+
+    @Param({"64", "4096"})
+    int bodySize;
+
+    private final org.slf4j.Logger legacyLog = LoggerFactory.getLogger("bench.legacy-request-log");
+    private final RequestLoggingFilter sampledAll = new RequestLoggingFilter(StageTimers.disabled(), true, 1.0, 1024);
+    private final RequestLoggingFilter sampledDefault = new RequestLoggingFilter(StageTimers.disabled(), true, 0.01, 1024);
+    private final FilterChain controller = (rq, rs) -> StreamUtils.drain(rq.getInputStream());
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder("{\"showId\":\"got\",\"targetSeason\":2,\"immersion\":3,\"language\":\"en\",\"pad\":\"");
+        while (sb.length() < bodySize - 2) sb.append('x');
+        body = sb.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+
+        Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+        root.setLevel(Level.INFO);
+        AppenderBase<ILoggingEvent> deferred = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                event.prepareForDeferredProcessing();
+            }
+        };
+        deferred.setContext(root.getLoggerContext());
+        deferred.start();
+        root.addAppender(deferred);
+    }
+
+    @Benchmark
+    public int legacy() throws IOException {
+        MockHttpServletRequest req = request();
+        // CachedBodyHttpServletRequest целиком + StreamUtils поверх него + String + конкатенация
+        byte[] cached = StreamUtils.copyToByteArray(req.getInputStream());
+        byte[] bodyBytes = StreamUtils.copyToByteArray(new ByteArrayInputStream(cached));
+        String text = new String(bodyBytes, StandardCharsets.UTF_8);
+        int max = Math.min(text.length(), 32_768);
+        legacyLog.info("REQ " + req.getMethod() + " " + req.getRequestURI() +
+                " CT=" + req.getContentType() + " Body=" + text.substring(0, max));
+        return StreamUtils.drain(new ByteArrayInputStream(cached));
+    }
+
+    @Benchmark
+    public int sampledAll() throws IOException, ServletException {
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        sampledAll.doFilter(request(), resp, controller);
+        return resp.getStatus();
+    }
+
+    @Benchmark
+    public int sampledDefault() throws IOException, ServletException {
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        sampledDefault.doFilter(request(), resp, controller);
+        return resp.getStatus();
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+        req.setContentType("application/json");
+        req.setContent(body);
+        return req;
+    }
+}
@@ -0,0 +1,64 @@
+package com.tes.api.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.dto.RecommendationResponse;
+import com.tes.api.service.RenderedRecommendation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись ответа на горячем ключе: Jackson на каждый запрос (как MappingJackson2HttpMessageConverter)
+ * против готовых байтов из кэша (RenderedRecommendation, ByteArrayHttpMessageConverter).
+ * Аллокации на запрос: gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    @Param({"7", "30"})
+    int seasons;
+
+    @Param({"1", "6"})
+    int perSeason;
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private RecommendationResponse response;
+    private RenderedRecommendation rendered;
+
+    @Setup
+    public void setUp() {
+        Map<Integer, List<RecommendationResponse.MinimalEpisode>> recs = new LinkedHashMap<>();
+        for (int s = 1; s <= seasons; s++) {
+            List<RecommendationResponse.MinimalEpisode> eps = new ArrayList<>();
+            for (int e = 1; e <= perSeason; e++) {
+                eps.add(new RecommendationResponse.MinimalEpisode("S" + s + "E" + e, s, e, "Episode title " + s + "x" + e,
+                        List.of("Stark Family", "War of the Five Kings", "Politics in King's Landing")));
+            }
+            recs.put(s, eps);
+        }
+        response = new RecommendationResponse(recs);
+        rendered = RenderedRecommendation.of(response, om);
+    }
+
+    @Benchmark
+    public void jacksonPerRequest() throws IOException {
+        om.writeValue(out, response);
+    }
+
+    @Benchmark
+    public void preRenderedBytes() throws IOException {
+        out.write(rendered.json());
+    }
+}
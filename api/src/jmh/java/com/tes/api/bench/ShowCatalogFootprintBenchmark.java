@@ -0,0 +1,106 @@
+package com.tes.api.bench;
+
+import com.tes.api.engine.Episode;
+import com.tes.api.engine.ShowCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память на 100k эпизодов (1000 шоу × 100): episodeList — как после разбора YAML (Episode, List, String'и),
+ * catalog — колонки ShowCatalog с общим пулом строк. Время здесь не главное: смотреть на вторичные
+ * метрики heapBytes (занятая куча после полной сборки, до и после построения) и estimatedBytes
+ * (ShowCatalog.footprintBytes, то, что видно в tes.catalog.bytes).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+// Serial: System.gc() — полная сборка, замер кучи повторяем
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseSerialGC", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ShowCatalogFootprintBenchmark {
+
+    static final int SHOWS = 1000;
+    static final int EPISODES_PER_SHOW = 100;
+    static final int ARC_VOCABULARY = 30;
+
+    /** Длина описания эпизода; 0 — без описаний. */
+    @Param({"0", "80"})
+    int summaryLength;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        public long heapBytes;
+        public long estimatedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            heapBytes = 0;
+            estimatedBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public Object episodeList(Retained retained) {
+        long before = usedHeapAfterGc();
+        List<List<Episode>> shows = generate();
+        retained.heapBytes = usedHeapAfterGc() - before;
+        return shows;
+    }
+
+    @Benchmark
+    public Object catalog(Retained retained) {
+        long before = usedHeapAfterGc();
+        List<List<Episode>> shows = generate();
+        ShowCatalog.Builder builder = new ShowCatalog.Builder();
+        for (int s = 0; s < shows.size(); s++) {
+            builder.add("show-" + s, "", "v", shows.get(s));
+        }
+        // ни списки, ни словарь интернирования в замер не входят
+        shows = null;
+        ShowCatalog catalog = builder.build();
+        builder = null;
+        retained.heapBytes = usedHeapAfterGc() - before;
+        retained.estimatedBytes = catalog.footprintBytes();
+        return catalog;
+    }
+
+    /** Строки создаются заново, как при разборе YAML: одинаковые арки — разные объекты. */
+    private List<List<Episode>> generate() {
+        List<List<Episode>> shows = new ArrayList<>(SHOWS);
+        for (int show = 0; show < SHOWS; show++) {
+            List<Episode> episodes = new ArrayList<>(EPISODES_PER_SHOW);
+            for (int i = 0; i < EPISODES_PER_SHOW; i++) {
+                int season = i / 10 + 1;
+                int number = i % 10 + 1;
+                List<String> arcs = new ArrayList<>(3);
+                for (int k = 0; k <= i % 3; k++) {
+                    arcs.add("Arc " + (show + i + k * 7) % ARC_VOCABULARY);
+                }
+                episodes.add(new Episode("S" + season + "E" + number, season, number,
+                        "Episode title " + show + "-" + i, summary(show, i), List.copyOf(arcs)));
+            }
+            shows.add(episodes);
+        }
+        return shows;
+    }
+
+    private String summary(int show, int i) {
+        if (summaryLength == 0) return "";
+        StringBuilder sb = new StringBuilder(summaryLength).append(show).append('-').append(i).append(' ');
+        while (sb.length() < summaryLength) sb.append('x');
+        return sb.toString();
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
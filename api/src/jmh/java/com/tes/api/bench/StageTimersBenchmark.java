@@ -0,0 +1,55 @@
+package com.tes.api.bench;
+
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.web.TesErrorCode;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена одной записи этапа на горячем пути под 8 потоками: два System.nanoTime и Timer.record
+ * в PrometheusMeterRegistry с гистограммой и без. disabled — только nanoTime (нижняя граница).
+ * На запрос приходится 4–6 записей (total, ratelimit, logging, handler, ml, render).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class StageTimersBenchmark {
+
+    private final StageTimers disabled = StageTimers.disabled();
+    private final StageTimers plain = new StageTimers(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), true, false);
+    private final StageTimers histogram = new StageTimers(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), true, true);
+
+    @Benchmark
+    public long disabled() {
+        return record(disabled, null);
+    }
+
+    @Benchmark
+    public long timer() {
+        return record(plain, null);
+    }
+
+    @Benchmark
+    public long timerWithHistogram() {
+        return record(histogram, null);
+    }
+
+    @Benchmark
+    public long timerWithHistogramError() {
+        return record(histogram, TesErrorCode.TES_002);
+    }
+
+    private static long record(StageTimers stages, TesErrorCode outcome) {
+        long start = System.nanoTime();
+        long took = System.nanoTime() - start;
+        stages.record(StageTimers.Stage.ML, outcome, took);
+        return took;
+    }
+}
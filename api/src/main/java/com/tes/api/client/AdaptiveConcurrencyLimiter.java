@@ -0,0 +1,163 @@
+package com.tes.api.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Адаптивный лимит одновременных вызовов ML (AIMD по задержке).
+ *
+ * <p>Вызов, завершившийся быстрее {@code latencyThreshold}, при загрузке не меньше половины лимита
+ * поднимает лимит на 1/limit (≈ +1 за «раунд» из limit вызовов). Вызов медленнее порога или упавший
+ * из-за перегрузки (таймаут, отказ соединения, 5xx) умножает лимит на {@code backoff} — не чаще раза
+ * за {@code latencyThreshold}, чтобы пачка таймаутов одной волны не обрушила лимит до минимума.
+ * Сверх лимита вызов не ждёт в очереди, а сразу отбрасывается.
+ *
+ * <p>min = max = initial даёт фиксированный лимит, как у прежнего bulkhead'а.
+ */
+public final class AdaptiveConcurrencyLimiter implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    public enum Outcome {
+        /** Ответ получен: задержка решает, рост это или спад. */
+        SUCCESS,
+        /** Признак перегрузки ML: лимит снижается. */
+        OVERLOAD,
+        /** Ошибка не о нагрузке (4xx, битый ответ): только освобождает слот. */
+        IGNORE
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoff;
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // под this
+    private double estimate;
+    private long lastDecrease;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong increases = new AtomicLong();
+    private final AtomicLong decreases = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      Duration latencyThreshold, double backoff) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, backoff, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                               Duration latencyThreshold, double backoff, LongSupplier nanoTime) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("expected 1 <= min-limit <= max-limit, got " + minLimit + ".." + maxLimit);
+        }
+        if (backoff <= 0 || backoff >= 1) {
+            throw new IllegalArgumentException("backoff must be in (0, 1), got " + backoff);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoff = backoff;
+        this.nanoTime = nanoTime;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimate = limit;
+        this.lastDecrease = nanoTime.getAsLong() - latencyThresholdNanos;
+    }
+
+    /** Слот под один вызов или null, если лимит занят (вызов надо отбросить). */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(nanoTime.getAsLong(), current + 1);
+            }
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    /** Занятый слот; release ровно один раз. */
+    public final class Permit {
+        private final long start;
+        private final int inFlightAtStart;
+
+        private Permit(long start, int inFlightAtStart) {
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release(Outcome outcome) {
+            inFlight.decrementAndGet();
+            if (outcome != Outcome.IGNORE) {
+                long now = nanoTime.getAsLong();
+                boolean overloaded = outcome == Outcome.OVERLOAD || now - start > latencyThresholdNanos;
+                adjust(now, overloaded, inFlightAtStart);
+            }
+        }
+    }
+
+    private synchronized void adjust(long now, boolean overloaded, int inFlightAtStart) {
+        int before = limit;
+        if (overloaded) {
+            if (now - lastDecrease < latencyThresholdNanos) return;
+            lastDecrease = now;
+            estimate = Math.max(minLimit, estimate * backoff);
+        } else if (inFlightAtStart * 2 >= before) {
+            // растём, только когда лимит реально используется: простой не доказывает запас ML
+            estimate = Math.min(maxLimit, estimate + 1.0 / estimate);
+        } else {
+            return;
+        }
+        int after = (int) estimate;
+        if (after != before) {
+            limit = after;
+            (after > before ? increases : decreases).incrementAndGet();
+            log.debug("ML concurrency limit {} -> {}", before, after);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tes.ml.concurrency.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive limit of concurrent ML calls")
+                .register(registry);
+        Gauge.builder("tes.ml.concurrency.inflight", this, AdaptiveConcurrencyLimiter::inFlight)
+                .description("ML calls in flight")
+                .register(registry);
+        FunctionCounter.builder("tes.ml.concurrency.rejected", rejected, AtomicLong::get)
+                .description("ML calls shed because the limit was reached")
+                .register(registry);
+        FunctionCounter.builder("tes.ml.concurrency.changes", increases, AtomicLong::get)
+                .tag("direction", "increase")
+                .register(registry);
+        FunctionCounter.builder("tes.ml.concurrency.changes", decreases, AtomicLong::get)
+                .tag("direction", "decrease")
+                .register(registry);
+    }
+}
@@ -0,0 +1,52 @@
+package com.tes.api.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Последние {@code size} задержек вызовов ML и их перцентиль для задержки хеджирования.
+ * Перцентиль пересчитывается раз в {@code size / 8} замеров, а не на каждый вызов.
+ */
+final class LatencyWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private final long fallbackNanos;
+    private final int recomputeEvery;
+    private volatile long cached;
+
+    LatencyWindow(int size, double percentile, long fallbackNanos) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1], got " + percentile);
+        }
+        this.samples = new AtomicLongArray(size);
+        this.percentile = percentile;
+        this.fallbackNanos = fallbackNanos;
+        this.recomputeEvery = Math.max(1, size / 8);
+        this.cached = fallbackNanos;
+    }
+
+    void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+        if ((n + 1) % recomputeEvery == 0) {
+            cached = compute(Math.min(n + 1, samples.length()));
+        }
+    }
+
+    /** Текущий перцентиль; пока замеров мало — fallback. */
+    long percentileNanos() {
+        return cached;
+    }
+
+    private long compute(long filled) {
+        if (filled < recomputeEvery) return fallbackNanos;
+        long[] copy = new long[(int) filled];
+        for (int i = 0; i < copy.length; i++) copy[i] = samples.get(i);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, idx))];
+    }
+}
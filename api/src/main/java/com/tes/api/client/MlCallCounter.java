@@ -0,0 +1,60 @@
+package com.tes.api.client;
+
+import jakarta.servlet.ServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Сколько вызовов ML сделал текущий HTTP-запрос: счётчик в атрибуте запроса.
+ * Его читает RateLimitFilter, чтобы доплатить токены за запросы, дошедшие до ML.
+ * Вне запроса (фоновая сборка таблицы ответов) ничего не делает.
+ */
+public final class MlCallCounter {
+
+    static final String ATTRIBUTE = MlCallCounter.class.getName() + ".calls";
+
+    private MlCallCounter() {
+    }
+
+    /**
+     * Вызовы одного запроса идут и с чужих потоков (fan-out батча через {@link #callWith}):
+     * в атрибуте один AtomicInteger, создаётся один раз под монитором атрибутов запроса.
+     */
+    public static void record() {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) return;
+        AtomicInteger calls = (AtomicInteger) attrs.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (calls == null) {
+            synchronized (attrs) {
+                calls = (AtomicInteger) attrs.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (calls == null) {
+                    calls = new AtomicInteger();
+                    attrs.setAttribute(ATTRIBUTE, calls, RequestAttributes.SCOPE_REQUEST);
+                }
+            }
+        }
+        calls.incrementAndGet();
+    }
+
+    /** Вызовы ML, записанные за запрос (атрибут сервлет-запроса). */
+    public static int count(ServletRequest request) {
+        return request.getAttribute(ATTRIBUTE) instanceof AtomicInteger n ? n.get() : 0;
+    }
+
+    /**
+     * Выполняет {@code call} с атрибутами исходного запроса: для работы, которую запрос
+     * запускает на чужих потоках (fan-out батча), чтобы её вызовы ML учлись тому же запросу.
+     */
+    public static <T> T callWith(RequestAttributes attrs, Supplier<T> call) {
+        RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+        RequestContextHolder.setRequestAttributes(attrs);
+        try {
+            return call.get();
+        } finally {
+            RequestContextHolder.setRequestAttributes(previous);
+        }
+    }
+}
@@ -1,54 +1,293 @@
 package com.tes.api.client;
 
+import com.tes.api.web.MlOverloadedException;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.netty.http.client.HttpClient;
-import reactor.netty.tcp.TcpClient;
 
+import java.net.ConnectException;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Клиент ML-сервиса поверх одной или нескольких реплик (tes.ml.endpoints, иначе tes.ml.base-url).
+ *
+ * <p>Реплика выбирается по двум случайным кандидатам с меньшим числом вызовов в полёте
+ * (power of two choices); у каждой свой circuit breaker "ml@&lt;url&gt;" с настройками инстанса "ml".
+ * Если ответа нет дольше перцентиля недавних задержек (tes.ml.hedge.percentile), тот же запрос
+ * уходит на другую реплику; первый ответ побеждает, проигравший вызов отменяется. Основная попытка
+ * уже упала — хеджа нет; упала с ошибкой запроса (4xx) — отправленный хедж отменяется.
+ * Хедж берёт свой слот адаптивного лимита и не отправляется, если слота нет.
+ *
+ * <p>Вызов можно отменить через {@link #cancel(Map)}: future, которую возвращают аспекты
+ * TimeLimiter/Bulkhead, отмену внутрь не передаёт.
+ */
 @Component
 public class MlClient {
-    private final WebClient wc;
-
-    public MlClient(@Value("${tes.ml.base-url:http://ml:5000}") String baseUrl,
-                    @Value("${tes.ml.timeouts.connect:1s}") Duration connectTimeout,
-                    @Value("${tes.ml.timeouts.read:3s}") Duration readTimeout) {
-        TcpClient tcp = TcpClient.create()
-                .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
-                .doOnConnected(conn -> conn
-                        .addHandlerLast(new io.netty.handler.timeout.ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
-                        .addHandlerLast(new io.netty.handler.timeout.WriteTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
-        this.wc = WebClient.builder()
-                .baseUrl(baseUrl)
-                .clientConnector(new org.springframework.http.client.reactive.ReactorClientHttpConnector(HttpClient.from(tcp)))
+
+    private static final Logger log = LoggerFactory.getLogger(MlClient.class);
+
+    private final List<MlEndpoint> endpoints;
+    private final AdaptiveConcurrencyLimiter concurrency;
+    private final boolean hedging;
+    private final LatencyWindow latencies;
+    private final long hedgeMinDelayNanos;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final MlResponseDecoder decoder;
+
+    /** Вызовы в полёте по payload (сравнение по ссылке) — для cancel(). */
+    private final Map<Map<String, Object>, CompletableFuture<MlRecommendation>> inFlight =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public MlClient(AdaptiveConcurrencyLimiter concurrency,
+                    CircuitBreakerRegistry circuitBreakers,
+                    MeterRegistry meterRegistry,
+                    HttpClient mlHttpClient,
+                    @Value("${tes.ml.base-url:http://ml:5000}") String baseUrl,
+                    @Value("${tes.ml.endpoints:}") List<String> endpointUrls,
+                    @Value("${tes.ml.hedge.enabled:true}") boolean hedging,
+                    @Value("${tes.ml.hedge.percentile:0.95}") double hedgePercentile,
+                    @Value("${tes.ml.hedge.initial-delay:500ms}") Duration hedgeInitialDelay,
+                    @Value("${tes.ml.hedge.min-delay:20ms}") Duration hedgeMinDelay,
+                    @Value("${tes.ml.transport.encoding:cbor}") String encoding) {
+        this.concurrency = concurrency;
+        this.decoder = new MlResponseDecoder(switch (encoding) {
+            case "cbor" -> true;
+            case "json" -> false;
+            default -> throw new IllegalArgumentException("Unknown tes.ml.transport.encoding: " + encoding);
+        });
+        // пул, таймауты и протокол — бин mlHttpClient (MlClientConfig, tes.ml.pool.*)
+        WebClient.Builder builder = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(mlHttpClient))
                 .exchangeStrategies(ExchangeStrategies.builder()
+                        // лимит буфера — для тел ошибок; ответ ML разбирается потоком (MlResponseDecoder)
                         .codecs(cfg -> cfg.defaultCodecs().maxInMemorySize(256 * 1024))
-                        .build())
-                .build();
+                        .build());
+
+        List<String> urls = endpointUrls.stream().map(String::trim).filter(u -> !u.isEmpty()).distinct().toList();
+        if (urls.isEmpty()) urls = List.of(baseUrl);
+        CircuitBreakerConfig breakerConfig = circuitBreakers.circuitBreaker("ml").getCircuitBreakerConfig();
+        this.endpoints = urls.stream()
+                .map(url -> new MlEndpoint(url, builder.clone().baseUrl(url).build(),
+                        circuitBreakers.circuitBreaker("ml@" + url, breakerConfig)))
+                .toList();
+
+        this.hedging = hedging && endpoints.size() > 1;
+        this.latencies = new LatencyWindow(1024, hedgePercentile, hedgeInitialDelay.toNanos());
+        this.hedgeMinDelayNanos = hedgeMinDelay.toNanos();
+        this.hedgesSent = Counter.builder("tes.ml.hedges").tag("result", "sent").register(meterRegistry);
+        this.hedgesWon = Counter.builder("tes.ml.hedges").tag("result", "won").register(meterRegistry);
+        log.info("ML endpoints: {} (hedging {})", endpoints, this.hedging ? "on" : "off");
     }
 
-    @CircuitBreaker(name = "ml")
     @TimeLimiter(name = "ml")
     @Bulkhead(name = "ml")
-    public CompletableFuture<Map> recommendAsync(Map<String, Object> payload) {
-        return wc.post()
-                .uri("/recommend")
-                .contentType(MediaType.APPLICATION_JSON)
-                .accept(MediaType.APPLICATION_JSON)
-                .bodyValue(payload)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .timeout(Duration.ofSeconds(3))
-                .toFuture();
+    public CompletableFuture<MlRecommendation> recommendAsync(Map<String, Object> payload) {
+        // сверх адаптивного лимита — сразу 503, без ожидания в очереди
+        AdaptiveConcurrencyLimiter.Permit permit = concurrency.tryAcquire();
+        if (permit == null) {
+            return CompletableFuture.failedFuture(new MlOverloadedException("ML concurrency limit reached"));
+        }
+        MlEndpoint primary = pick(null);
+        if (primary == null) {
+            // breaker'ы всех реплик открыты → 503 TES-002
+            permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+            return CompletableFuture.failedFuture(
+                    CallNotPermittedException.createCallNotPermittedException(endpoints.get(0).circuitBreaker()));
+        }
+        // сюда доходят только вызовы, пропущенные bulkhead'ом и лимитом
+        MlCallCounter.record();
+
+        if (!hedging) {
+            return track(payload, attempt(primary, payload, permit, false).toFuture());
+        }
+        Sinks.One<Throwable> primaryFailed = Sinks.one();
+        Mono<MlRecommendation> first = attempt(primary, payload, permit, false)
+                .doOnError(primaryFailed::tryEmitValue);
+        Mono<MlRecommendation> hedge = Mono.delay(Duration.ofNanos(hedgeDelayNanos()))
+                // хедж — только пока основная попытка ждёт ответа: упала — таймер снимается
+                .takeUntilOther(primaryFailed.asMono())
+                .flatMap(tick -> {
+                    MlEndpoint other = pick(primary);
+                    AdaptiveConcurrencyLimiter.Permit extra = other != null ? concurrency.tryAcquire() : null;
+                    if (extra == null) return Mono.<MlRecommendation>empty();
+                    hedgesSent.increment();
+                    return attempt(other, payload, extra, true)
+                            // ошибка запроса (4xx), а не реплики: другая ответит так же — хедж отменяем
+                            .takeUntilOther(primaryFailed.asMono().filter(e -> !retryable(e)));
+                });
+        // первый успешный ответ; если упали оба (или хеджа не было) — ошибка основной попытки
+        return track(payload, Mono.firstWithValue(first, hedge)
+                .onErrorMap(MlClient::firstFailure)
+                .toFuture());
+    }
+
+    /**
+     * Отменяет вызов, начатый {@link #recommendAsync} с этим же объектом payload: HTTP-обмен
+     * с репликой (и хедж) прерывается, слоты лимита и bulkhead'а освобождаются. Завершённый или
+     * неизвестный вызов — без эффекта.
+     */
+    public void cancel(Map<String, Object> payload) {
+        CompletableFuture<MlRecommendation> call = inFlight.remove(payload);
+        if (call != null) {
+            // future от Mono.toFuture(): cancel отписывается от WebClient
+            call.cancel(false);
+        }
+    }
+
+    private CompletableFuture<MlRecommendation> track(Map<String, Object> payload,
+                                                      CompletableFuture<MlRecommendation> call) {
+        inFlight.put(payload, call);
+        call.whenComplete((ml, e) -> inFlight.remove(payload));
+        return call;
+    }
+
+    /** Задержка хеджа: перцентиль недавних задержек, не меньше min-delay. */
+    long hedgeDelayNanos() {
+        return Math.max(hedgeMinDelayNanos, latencies.percentileNanos());
+    }
+
+    /**
+     * Два случайных кандидата, из них — с меньшим числом вызовов в полёте.
+     * Реплики с открытым breaker'ом и {@code exclude} не выбираются; null — выбрать не из чего.
+     */
+    MlEndpoint pick(MlEndpoint exclude) {
+        int n = endpoints.size();
+        if (n == 1) {
+            MlEndpoint only = endpoints.get(0);
+            return only != exclude && only.available() ? only : null;
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int i = rnd.nextInt(n);
+        int j = rnd.nextInt(n - 1);
+        if (j >= i) j++;
+        MlEndpoint a = endpoints.get(i);
+        MlEndpoint b = endpoints.get(j);
+        boolean okA = a != exclude && a.available();
+        boolean okB = b != exclude && b.available();
+        if (okA && okB) return a.outstanding().get() <= b.outstanding().get() ? a : b;
+        if (okA) return a;
+        if (okB) return b;
+        // обоим кандидатам нельзя — полный проход
+        MlEndpoint best = null;
+        for (MlEndpoint e : endpoints) {
+            if (e != exclude && e.available()
+                    && (best == null || e.outstanding().get() < best.outstanding().get())) {
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    List<MlEndpoint> endpoints() {
+        return endpoints;
+    }
+
+    /** Один HTTP-вызов реплики: breaker, счётчик в полёте и слот лимита освобождаются ровно один раз. */
+    private Mono<MlRecommendation> attempt(MlEndpoint endpoint, Map<String, Object> payload,
+                                           AdaptiveConcurrencyLimiter.Permit permit, boolean hedge) {
+        return Mono.defer(() -> {
+            CircuitBreaker breaker = endpoint.circuitBreaker();
+            if (!breaker.tryAcquirePermission()) {
+                permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(breaker));
+            }
+            endpoint.outstanding().incrementAndGet();
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean();
+
+            return endpoint.webClient().post()
+                    .uri("/recommendations")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.ACCEPT, decoder.accept())
+                    .bodyValue(payload)
+                    // тело ответа разбирается потоком по мере прихода, формат — по Content-Type
+                    .exchangeToMono(decoder::decode)
+                    .timeout(Duration.ofSeconds(3))
+                    .doOnSuccess(ml -> {
+                        if (!finished.compareAndSet(false, true)) return;
+                        long took = System.nanoTime() - start;
+                        endpoint.outstanding().decrementAndGet();
+                        breaker.onSuccess(took, TimeUnit.NANOSECONDS);
+                        latencies.record(took);
+                        permit.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+                        if (hedge) hedgesWon.increment();
+                    })
+                    .doOnError(e -> {
+                        if (!finished.compareAndSet(false, true)) return;
+                        endpoint.outstanding().decrementAndGet();
+                        breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                        permit.release(outcome(e));
+                    })
+                    .doOnCancel(() -> {
+                        // проиграл хеджу или вызов отменён сверху (TimeLimiter): о реплике это ничего не говорит
+                        if (!finished.compareAndSet(false, true)) return;
+                        endpoint.outstanding().decrementAndGet();
+                        breaker.releasePermission();
+                        permit.release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+                    });
+        });
+    }
+
+    /** firstWithValue при двух ошибках отдаёт NoSuchElementException; наружу — исходная причина. */
+    private static Throwable firstFailure(Throwable e) {
+        if (!(e instanceof NoSuchElementException) || e.getCause() == null) return e;
+        for (Throwable t : Exceptions.unwrapMultiple(e.getCause())) {
+            if (t != null && !(t instanceof NoSuchElementException)) return t;
+        }
+        return e;
+    }
+
+    /** Ошибка реплики (перегрузка, таймаут, соединение), а не запроса: другая реплика может ответить. */
+    static boolean retryable(Throwable e) {
+        return outcome(e) == AdaptiveConcurrencyLimiter.Outcome.OVERLOAD;
+    }
+
+    /** Что ошибка говорит о нагрузке на ML: таймауты, отказ соединения и 5xx — перегрузка. */
+    static AdaptiveConcurrencyLimiter.Outcome outcome(Throwable e) {
+        if (e == null) return AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        if (cause instanceof WebClientResponseException r) {
+            return r.getStatusCode().is5xxServerError()
+                    ? AdaptiveConcurrencyLimiter.Outcome.OVERLOAD
+                    : AdaptiveConcurrencyLimiter.Outcome.IGNORE;
+        }
+        if (cause instanceof TimeoutException || cause instanceof ConnectException
+                || cause instanceof WebClientRequestException
+                || cause instanceof io.netty.handler.timeout.TimeoutException) {
+            return AdaptiveConcurrencyLimiter.Outcome.OVERLOAD;
+        }
+        return AdaptiveConcurrencyLimiter.Outcome.IGNORE;
     }
 }
@@ -0,0 +1,48 @@
+package com.tes.api.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Одна реплика ML: свой WebClient, свой circuit breaker и число вызовов в полёте для балансировки. */
+final class MlEndpoint {
+
+    private final String baseUrl;
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    MlEndpoint(String baseUrl, WebClient webClient, CircuitBreaker circuitBreaker) {
+        this.baseUrl = baseUrl;
+        this.webClient = webClient;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    String baseUrl() {
+        return baseUrl;
+    }
+
+    WebClient webClient() {
+        return webClient;
+    }
+
+    CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    AtomicInteger outstanding() {
+        return outstanding;
+    }
+
+    /** Открытый breaker не участвует в выборе; half-open — участвует (пробные вызовы). */
+    boolean available() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN
+                && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -0,0 +1,17 @@
+package com.tes.api.client;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ответ ML-сервиса: {"recommendations": { "1": [ {id,season,episode,title,arcs}, ... ], ... } }.
+ * Jackson декодирует тело сразу в этот тип, без промежуточного Map.
+ */
+public record MlRecommendation(
+        Map<Integer, List<MlEpisode>> recommendations
+) {
+    public record MlEpisode(
+            String id, int season, int episode, String title, List<String> arcs
+    ) {
+    }
+}
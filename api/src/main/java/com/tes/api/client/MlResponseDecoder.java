@@ -0,0 +1,81 @@
+package com.tes.api.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Тело ответа ML → MlRecommendation в формате, который выбрал сервер (Content-Type): CBOR или JSON.
+ *
+ * <p>Тело не собирается целиком в память: буферы идут в парсер Jackson через InputStream
+ * по мере прихода (DataBufferUtils.subscriberInputStream, с backpressure), разбор — на boundedElastic.
+ * Поэтому лимит maxInMemorySize кодеков к ответу ML не применяется. Отмена вызова (проигравший хедж,
+ * TimeLimiter) закрывает поток, а с ним и HTTP-ответ.
+ */
+public final class MlResponseDecoder {
+
+    static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+
+    /** Сколько буферов подписчик запрашивает вперёд. */
+    private static final int PREFETCH = 16;
+
+    private final ObjectReader json;
+    private final ObjectReader cbor;
+    private final String accept;
+
+    /** preferCbor: Accept "application/cbor, application/json;q=0.5" — сервер без CBOR ответит JSON. */
+    MlResponseDecoder(boolean preferCbor) {
+        this.json = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readerFor(MlRecommendation.class);
+        this.cbor = new CBORMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readerFor(MlRecommendation.class);
+        this.accept = preferCbor
+                ? APPLICATION_CBOR + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.5"
+                : MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    /** Значение заголовка Accept запроса к ML. */
+    String accept() {
+        return accept;
+    }
+
+    Mono<MlRecommendation> decode(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return response.createError();
+        }
+        ObjectReader reader = response.headers().contentType()
+                .filter(APPLICATION_CBOR::isCompatibleWith)
+                .map(t -> cbor)
+                .orElse(json);
+        return decode(response.bodyToFlux(DataBuffer.class), reader);
+    }
+
+    public static Mono<MlRecommendation> decode(Flux<DataBuffer> body, ObjectReader reader) {
+        return Mono.using(
+                () -> DataBufferUtils.subscriberInputStream(body, PREFETCH),
+                in -> Mono.fromCallable(() -> reader.<MlRecommendation>readValue(in))
+                        .subscribeOn(Schedulers.boundedElastic()),
+                MlResponseDecoder::closeQuietly);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // поток уже отменён
+        }
+    }
+}
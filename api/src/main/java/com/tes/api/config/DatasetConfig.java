@@ -0,0 +1,69 @@
+package com.tes.api.config;
+
+import com.tes.api.engine.ShowCatalogRegistry;
+import com.tes.api.engine.ShowDataset;
+import com.tes.api.engine.ShowDatasetHolder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@EnableScheduling
+public class DatasetConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetConfig.class);
+
+    /**
+     * Датасет шоу для встроенного движка, таблицы готовых ответов и версии в ETag/кэше — шоу
+     * tes.dataset.show из каталога: версия та же, что у проверки запросов, и меняется вместе с каталогом.
+     */
+    @Bean
+    public ShowDatasetHolder showDatasetHolder(ShowCatalogRegistry catalog,
+                                               @Value("${tes.dataset.show:got}") String showId) {
+        ShowDatasetHolder holder = new ShowDatasetHolder(catalog, showId);
+        ShowDataset dataset = holder.current();
+        if (dataset.isEmpty()) {
+            // приложение должно стартовать и без датасета: в режиме http он не обязателен
+            log.warn("Show dataset {} not found in the catalog", showId);
+        } else {
+            log.info("Show dataset loaded: show={}, episodes={}, version={}",
+                    dataset.showId(), dataset.episodes().size(), dataset.version());
+        }
+        return holder;
+    }
+
+    /**
+     * Каталог всех сериалов (все *.yaml каталога tes.catalog.path) в компактном виде: по нему
+     * запросы с неизвестным showId или targetSeason вне 1..maxSeason+1 отклоняются до вызова ML.
+     * Пустой каталог (файлов нет или не разобрались) ничего не отклоняет.
+     */
+    @Bean(destroyMethod = "close")
+    public ShowCatalogRegistry showCatalogRegistry(MeterRegistry meterRegistry,
+                                                   @Value("${tes.catalog.path:../ml/data}") String path,
+                                                   @Value("${tes.catalog.watch:true}") boolean watch,
+                                                   @Value("${tes.catalog.poll-interval:PT1M}") Duration pollInterval) {
+        ShowCatalogRegistry registry = new ShowCatalogRegistry(Path.of(path));
+        try {
+            registry.reload();
+        } catch (Exception e) {
+            log.warn("Show catalog not loaded from {}: {}", path, e.toString());
+        }
+        if (watch) {
+            registry.watch(pollInterval);
+        }
+        Gauge.builder("tes.catalog.shows", registry, r -> r.current().showIds().size()).register(meterRegistry);
+        Gauge.builder("tes.catalog.episodes", registry, r -> r.current().episodeCount()).register(meterRegistry);
+        Gauge.builder("tes.catalog.bytes", registry, r -> r.current().footprintBytes())
+                .description("Columns and string pool of the show catalog")
+                .baseUnit("bytes").register(meterRegistry);
+        return registry;
+    }
+}
@@ -0,0 +1,92 @@
+package com.tes.api.config;
+
+import com.tes.api.client.AdaptiveConcurrencyLimiter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MlClientConfig {
+
+    /**
+     * Адаптивный лимит конкурентности вызовов ML (tes.ml.concurrency.*).
+     * MeterBinder: метрики tes.ml.concurrency.* регистрируются автоматически.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter mlConcurrencyLimiter(
+            @Value("${tes.ml.concurrency.initial-limit:16}") int initialLimit,
+            @Value("${tes.ml.concurrency.min-limit:2}") int minLimit,
+            @Value("${tes.ml.concurrency.max-limit:64}") int maxLimit,
+            @Value("${tes.ml.concurrency.latency-threshold:1s}") Duration latencyThreshold,
+            @Value("${tes.ml.concurrency.backoff:0.9}") double backoff) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThreshold, backoff);
+    }
+
+    /**
+     * Пул соединений к ML (tes.ml.pool.*), общий для всех реплик: лимит на реплику — max-connections.
+     * metrics(true) — reactor.netty.connection.provider.* (active/idle/pending, время ожидания
+     * соединения) в глобальный реестр Micrometer, откуда их берёт /actuator/prometheus.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider mlConnectionProvider(
+            @Value("${tes.ml.pool.max-connections:64}") int maxConnections,
+            @Value("${tes.ml.pool.pending-acquire-max:256}") int pendingAcquireMax,
+            @Value("${tes.ml.pool.pending-acquire-timeout:500ms}") Duration pendingAcquireTimeout,
+            @Value("${tes.ml.pool.max-idle-time:4s}") Duration maxIdleTime,
+            @Value("${tes.ml.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${tes.ml.pool.evict-interval:10s}") Duration evictInterval) {
+        return ConnectionProvider.builder("ml")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                // свежее соединение первым: остальные дольше простаивают и закрываются по max-idle-time
+                .lifo()
+                .metrics(true)
+                .build();
+    }
+
+    /** HTTP-клиент к ML: таймауты, протокол (HTTP/1.1 или h2c) и сжатие ответов. */
+    @Bean
+    public HttpClient mlHttpClient(ConnectionProvider mlConnectionProvider,
+                                   @Value("${tes.ml.timeouts.connect:1s}") Duration connectTimeout,
+                                   @Value("${tes.ml.timeouts.read:3s}") Duration readTimeout,
+                                   @Value("${tes.ml.timeouts.write:3s}") Duration writeTimeout,
+                                   @Value("${tes.ml.pool.protocol:http11}") String protocol,
+                                   @Value("${tes.ml.pool.compression:false}") boolean compression) {
+        return HttpClient.create(mlConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .protocol(protocols(protocol))
+                .compress(compression)
+                // uri у клиента один — /recommendations, кардинальность тегов не растёт
+                .metrics(true, uri -> uri)
+                .doOnConnected(conn -> conn
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(writeTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * http11 — как раньше; h2c — Upgrade с HTTP/1.1 (сервер без HTTP/2 просто ответит по 1.1);
+     * h2c-prior-knowledge — сразу HTTP/2 без Upgrade, все запросы реплики мультиплексируются в одном соединении.
+     */
+    static HttpProtocol[] protocols(String protocol) {
+        return switch (protocol) {
+            case "http11" -> new HttpProtocol[]{HttpProtocol.HTTP11};
+            case "h2c" -> new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C};
+            case "h2c-prior-knowledge" -> new HttpProtocol[]{HttpProtocol.H2C};
+            default -> throw new IllegalArgumentException("Unknown tes.ml.pool.protocol: " + protocol);
+        };
+    }
+}
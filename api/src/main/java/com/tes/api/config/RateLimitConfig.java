@@ -0,0 +1,75 @@
+package com.tes.api.config;
+
+import com.tes.api.web.filters.Bucket4jRateLimiter;
+import com.tes.api.web.filters.RateLimitPolicy;
+import com.tes.api.web.filters.RateLimitTier;
+import com.tes.api.web.filters.RateLimiterBackend;
+import com.tes.api.web.filters.StripedRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class RateLimitConfig {
+
+    private final String backend;
+    private final long maxKeys;
+    private final int width;
+    private final int depth;
+
+    public RateLimitConfig(@Value("${ratelimit.backend:bucket4j}") String backend,
+                           @Value("${ratelimit.bucket4j.max-keys:10000}") long maxKeys,
+                           @Value("${ratelimit.sketch.width:65536}") int width,
+                           @Value("${ratelimit.sketch.depth:4}") int depth) {
+        this.backend = backend;
+        this.maxKeys = maxKeys;
+        this.width = width;
+        this.depth = depth;
+    }
+
+    /**
+     * Уровни по порядку проверки: ip → key → global. Уровень с capacity 0 выключен
+     * (per-ip включён всегда, как и раньше).
+     */
+    @Bean
+    public RateLimitPolicy rateLimitPolicy(
+            @Value("${ratelimit.per-ip.capacity:60}") long ipCapacity,
+            @Value("${ratelimit.per-ip.refill-period:PT1H}") Duration ipPeriod,
+            @Value("${ratelimit.per-key.capacity:0}") long keyCapacity,
+            @Value("${ratelimit.per-key.refill-period:PT1H}") Duration keyPeriod,
+            @Value("${ratelimit.per-key.header:X-API-Key}") String apiKeyHeader,
+            @Value("${ratelimit.global.capacity:0}") long globalCapacity,
+            @Value("${ratelimit.global.refill-period:PT1S}") Duration globalPeriod,
+            @Value("${ratelimit.costs.default:1}") long defaultCost,
+            @Value("${ratelimit.costs.routes:}") String routeCosts,
+            @Value("${ratelimit.costs.ml-call:1}") long mlCallCost) {
+        List<RateLimitTier> tiers = new ArrayList<>(3);
+        tiers.add(new RateLimitTier("ip", RateLimitTier.Scope.IP, backend(ipCapacity, ipPeriod)));
+        if (keyCapacity > 0) {
+            tiers.add(new RateLimitTier("key", RateLimitTier.Scope.API_KEY, backend(keyCapacity, keyPeriod)));
+        }
+        if (globalCapacity > 0) {
+            // одна корзина на инстанс — таблица на тысячи ключей ей не нужна
+            tiers.add(new RateLimitTier("global", RateLimitTier.Scope.GLOBAL,
+                    new Bucket4jRateLimiter(globalCapacity, globalPeriod, 1)));
+        }
+        return new RateLimitPolicy(tiers, RateLimitPolicy.parseRouteCosts(routeCosts),
+                defaultCost, mlCallCost, apiKeyHeader);
+    }
+
+    /**
+     * ratelimit.backend: bucket4j — корзина на ключ в Caffeine; sketch — фиксированная таблица
+     * (StripedRateLimiter), память не растёт с числом ключей.
+     */
+    private RateLimiterBackend backend(long capacity, Duration refillPeriod) {
+        return switch (backend) {
+            case "bucket4j" -> new Bucket4jRateLimiter(capacity, refillPeriod, maxKeys);
+            case "sketch" -> new StripedRateLimiter(capacity, refillPeriod, width, depth);
+            default -> throw new IllegalArgumentException("Unknown ratelimit.backend: " + backend);
+        };
+    }
+}
@@ -1,16 +1,26 @@
 package com.tes.api.config;
 
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.web.StageTimingInterceptor;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
 
 import java.util.Locale;
 
 @Configuration
-public class WebConfig {
+public class WebConfig implements WebMvcConfigurer {
+
+    private final StageTimers stages;
+
+    public WebConfig(StageTimers stages) {
+        this.stages = stages;
+    }
 
     @Bean
     public MessageSource messageSource() {
@@ -27,4 +37,10 @@ public class WebConfig {
         lr.setDefaultLocale(Locale.ENGLISH);
         return lr;
     }
-}
\ No newline at end of file
+
+    /** tes.request.stage{stage=handler}: /recommendations и /recommendations:batch. */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StageTimingInterceptor(stages)).addPathPatterns("/recommendations*");
+    }
+}
@@ -0,0 +1,12 @@
+package com.tes.api.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/** Элементы валидируются по одному в сервисе: ошибка одного не роняет весь батч. */
+public record BatchRecommendationRequest(
+        @NotEmpty @Size(max = 50) List<RecommendationRequest> items
+) {
+}
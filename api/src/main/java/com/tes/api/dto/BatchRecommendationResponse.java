@@ -0,0 +1,32 @@
+package com.tes.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Результаты в порядке элементов запроса; у каждого свой HTTP-статус и, при ошибке, TES-код.
+ * {@code stale: true} — как X-TES-Stale у одиночного ответа: ML недоступен, ответ последний удачный.
+ */
+public record BatchRecommendationResponse(
+        List<Item> results
+) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(
+            int index,
+            int status,
+            String code,
+            String title,
+            Map<Integer, List<RecommendationResponse.MinimalEpisode>> recommendations,
+            Boolean stale
+    ) {
+        public static Item ok(int index, RecommendationResponse response, boolean stale) {
+            return new Item(index, 200, null, null, response.recommendations(), stale ? Boolean.TRUE : null);
+        }
+
+        public static Item error(int index, int status, String code, String title) {
+            return new Item(index, status, code, title, null, null);
+        }
+    }
+}
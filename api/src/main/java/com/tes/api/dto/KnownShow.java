@@ -0,0 +1,27 @@
+package com.tes.api.dto;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * showId есть в каталоге (ShowCatalogRegistry), а targetSeason — в 1..maxSeason+1 этого шоу.
+ * Нарушение — обычный 400 TES-001, ML не вызывается. Пока каталог пуст, проверка пропускается.
+ */
+@Documented
+@Constraint(validatedBy = KnownShowValidator.class)
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface KnownShow {
+
+    String message() default "unknown show or target season";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
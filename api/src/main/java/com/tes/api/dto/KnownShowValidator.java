@@ -0,0 +1,37 @@
+package com.tes.api.dto;
+
+import com.tes.api.engine.ShowCatalog;
+import com.tes.api.engine.ShowCatalogRegistry;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/** Создаётся фабрикой валидаторов Spring, поэтому получает каталог через конструктор. */
+public class KnownShowValidator implements ConstraintValidator<KnownShow, RecommendationRequest> {
+
+    private final ShowCatalogRegistry catalog;
+
+    public KnownShowValidator(ShowCatalogRegistry catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public boolean isValid(RecommendationRequest request, ConstraintValidatorContext context) {
+        ShowCatalog current = catalog.current();
+        // пустой showId и targetSeason < 1 отклоняют @NotBlank и @Min
+        if (request == null || current.isEmpty() || request.showId() == null || request.showId().isBlank()
+                || request.targetSeason() < 1) {
+            return true;
+        }
+        ShowCatalog.Show show = current.show(request.showId());
+        if (show != null && current.accepts(request.showId(), request.targetSeason())) {
+            return true;
+        }
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(show == null
+                        ? "unknown show"
+                        : "target season must be between 1 and " + (show.maxSeason() + 1))
+                .addPropertyNode(show == null ? "showId" : "targetSeason")
+                .addConstraintViolation();
+        return false;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 
+@KnownShow
 public record RecommendationRequest(
         @NotBlank String showId,
         @Min(1) int targetSeason,
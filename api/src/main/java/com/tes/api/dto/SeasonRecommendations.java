@@ -0,0 +1,27 @@
+package com.tes.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Один элемент потоковой выдачи (NDJSON-строка или SSE-событие): эпизоды одного сезона.
+ * {@code stale: true} — ML недоступен, отдан последний удачный ответ (у свежего поля нет).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SeasonRecommendations(
+        int season,
+        List<RecommendationResponse.MinimalEpisode> episodes,
+        Boolean stale
+) {
+    /** Сезоны ответа по возрастанию номера. */
+    public static List<SeasonRecommendations> of(RecommendationResponse response, boolean stale) {
+        List<SeasonRecommendations> out = new ArrayList<>(response.recommendations().size());
+        response.recommendations().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> out.add(new SeasonRecommendations(e.getKey(), e.getValue(), stale ? Boolean.TRUE : null)));
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+package com.tes.api.engine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Арки сериала, интернированные в целые id, и маски арок эпизодов в одном плоском long[].
+ *
+ * <p>Маска эпизода i — слова {@code masks[i * stride] .. masks[i * stride + stride - 1]}.
+ * Выигрыш эпизода — popcount пересечения с маской непокрытых арок, без строк и аллокаций.
+ */
+public final class ArcCoverageIndex {
+
+    private final Map<String, Integer> ids;
+    private final int stride;
+    private final long[] masks;
+
+    private ArcCoverageIndex(Map<String, Integer> ids, int stride, long[] masks) {
+        this.ids = ids;
+        this.stride = stride;
+        this.masks = masks;
+    }
+
+    public static ArcCoverageIndex build(List<Episode> episodes) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Episode e : episodes) {
+            for (String arc : e.arcs()) {
+                ids.putIfAbsent(arc, ids.size());
+            }
+        }
+        int stride = Math.max(1, (ids.size() + 63) >>> 6);
+        long[] masks = new long[episodes.size() * stride];
+        for (int i = 0; i < episodes.size(); i++) {
+            for (String arc : episodes.get(i).arcs()) {
+                int id = ids.get(arc);
+                masks[i * stride + (id >>> 6)] |= 1L << id;
+            }
+        }
+        return new ArcCoverageIndex(Map.copyOf(ids), stride, masks);
+    }
+
+    /** Число различных арок сериала. */
+    public int arcCount() {
+        return ids.size();
+    }
+
+    /** Длина маски в long'ах. */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * Записывает маску арок в {@code target} (длиной не меньше stride).
+     *
+     * @return сколько арок не встречается ни в одном эпизоде: покрыть их нельзя
+     */
+    public int mask(Collection<String> arcs, long[] target) {
+        for (int w = 0; w < stride; w++) {
+            target[w] = 0L;
+        }
+        int unknown = 0;
+        for (String arc : arcs) {
+            Integer id = ids.get(arc);
+            if (id == null) {
+                unknown++;
+            } else {
+                target[id >>> 6] |= 1L << id;
+            }
+        }
+        return unknown;
+    }
+
+    /** |arcs(episode) ∩ uncovered|. */
+    public int gain(int episode, long[] uncovered) {
+        int base = episode * stride;
+        int gain = 0;
+        for (int w = 0; w < stride; w++) {
+            gain += Long.bitCount(masks[base + w] & uncovered[w]);
+        }
+        return gain;
+    }
+
+    /** uncovered -= arcs(episode). */
+    public void cover(int episode, long[] uncovered) {
+        int base = episode * stride;
+        for (int w = 0; w < stride; w++) {
+            uncovered[w] &= ~masks[base + w];
+        }
+    }
+
+    public boolean isEmpty(long[] mask) {
+        for (int w = 0; w < stride; w++) {
+            if (mask[w] != 0L) return false;
+        }
+        return true;
+    }
+}
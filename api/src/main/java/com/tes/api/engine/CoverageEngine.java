@@ -0,0 +1,131 @@
+package com.tes.api.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Встроенная альтернатива ML-сервису: порт recommend_minimal (ml/logic.py) для одного датасета.
+ *
+ * <p>При создании один раз считаются векторы эпизодов, маски арок и ранжирование
+ * эпизодов каждого сезона для всех targetSeason датасета. Запрос — это только жадный выбор
+ * по готовым массивам. Для чужого showId (другой текст запроса → другие score) ранжирование
+ * считается на лету, как и в Python. Рабочие массивы жадного выбора — по одному на поток.
+ */
+public final class CoverageEngine {
+
+    private final ShowDataset dataset;
+    private final List<Episode> episodes;
+    private final float[][] vectors;
+    private final ArcCoverageIndex arcs;
+    private final ThreadLocal<CoveragePlanner.Scratch> scratch;
+
+    /** rankings[targetSeason] — ранжирование для showId датасета. */
+    private final Ranking[] rankings;
+
+    private record Ranking(float[] scores, Map<Integer, int[]> bySeason) {
+    }
+
+    public CoverageEngine(ShowDataset dataset) {
+        this.dataset = dataset;
+        this.episodes = dataset.episodes();
+        int n = episodes.size();
+
+        this.vectors = new float[n][];
+        for (int i = 0; i < n; i++) {
+            vectors[i] = HashEmbeddings.normalize(HashEmbeddings.embed(embedText(episodes.get(i))));
+        }
+        this.arcs = ArcCoverageIndex.build(episodes);
+        int largestSeason = largestSeason(episodes);
+        this.scratch = ThreadLocal.withInitial(() -> new CoveragePlanner.Scratch(arcs.stride(), largestSeason));
+
+        int maxSeason = dataset.maxSeason();
+        this.rankings = new Ranking[maxSeason + 2];
+        for (int target = 1; target <= maxSeason + 1; target++) {
+            rankings[target] = rank(queryText(dataset.showId(), target, List.of()), target);
+        }
+    }
+
+    public ShowDataset dataset() {
+        return dataset;
+    }
+
+    public Map<Integer, List<Episode>> recommend(String showId, int targetSeason, int immersion) {
+        return recommend(showId, targetSeason, immersion, Map.of());
+    }
+
+    /** {season: [Episode, ...]} только для сезонов &lt; targetSeason, по возрастанию сезона. */
+    public Map<Integer, List<Episode>> recommend(String showId, int targetSeason, int immersion,
+                                                 Map<Integer, Set<String>> requiredArcsBySeason) {
+        List<String> keyArcs = requiredArcsBySeason.values().stream()
+                .flatMap(Set::stream).distinct().sorted().toList();
+        Ranking ranking = (keyArcs.isEmpty() && dataset.showId().equals(showId) && targetSeason < rankings.length)
+                ? rankings[targetSeason]
+                : rank(queryText(showId, targetSeason, keyArcs), targetSeason);
+
+        CoveragePlanner.Scratch s = scratch.get();
+        Map<Integer, List<Episode>> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, int[]> e : ranking.bySeason().entrySet()) {
+            int season = e.getKey();
+            int n = CoveragePlanner.selectForSeason(e.getValue(), ranking.scores(), arcs,
+                    requiredArcsBySeason.getOrDefault(season, Set.of()), immersion, s);
+            List<Episode> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) out.add(episodes.get(s.selected(i)));
+            result.put(season, out);
+        }
+        return result;
+    }
+
+    /** Эпизоды сезонов &lt; targetSeason, сгруппированные по сезону и отсортированные по score. */
+    private Ranking rank(String queryText, int targetSeason) {
+        float[] query = HashEmbeddings.normalize(HashEmbeddings.embed(queryText));
+        float[] scores = new float[episodes.size()];
+        List<Integer> prior = new ArrayList<>();
+        for (int i = 0; i < episodes.size(); i++) {
+            if (episodes.get(i).season() < targetSeason) {
+                scores[i] = HashEmbeddings.dot(vectors[i], query);
+                prior.add(i);
+            }
+        }
+        // стабильная сортировка по убыванию, как list.sort(reverse=True) в Python
+        prior.sort((a, b) -> Float.compare(scores[b], scores[a]));
+
+        Map<Integer, List<Integer>> grouped = new TreeMap<>();
+        for (int i : prior) {
+            grouped.computeIfAbsent(episodes.get(i).season(), s -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, int[]> bySeason = new LinkedHashMap<>();
+        grouped.forEach((season, idx) -> bySeason.put(season, idx.stream().mapToInt(Integer::intValue).toArray()));
+        return new Ranking(scores, bySeason);
+    }
+
+    private static int largestSeason(List<Episode> episodes) {
+        Map<Integer, Integer> sizes = new TreeMap<>();
+        int max = 0;
+        for (Episode e : episodes) {
+            max = Math.max(max, sizes.merge(e.season(), 1, Integer::sum));
+        }
+        return max;
+    }
+
+    /** EpisodeScorer: summary, если есть, иначе "title: …\nsummary: …\narcs: …". */
+    static String embedText(Episode e) {
+        if (!e.summary().isEmpty()) return e.summary();
+        List<String> parts = new ArrayList<>(3);
+        if (!e.title().isEmpty()) parts.add("title: " + e.title());
+        if (!e.arcs().isEmpty()) parts.add("arcs: " + String.join(" ", e.arcs().stream().sorted().toList()));
+        return String.join("\n", parts);
+    }
+
+    /** _build_query_text; keyArcs — отсортированное объединение требуемых арок. */
+    static String queryText(String showId, int targetSeason, List<String> keyArcs) {
+        List<String> parts = new ArrayList<>(3);
+        if (showId != null && !showId.isEmpty()) parts.add("show: " + showId);
+        parts.add("target season: " + targetSeason);
+        if (!keyArcs.isEmpty()) parts.add("key arcs: " + String.join(", ", keyArcs));
+        return String.join("\n", parts);
+    }
+}
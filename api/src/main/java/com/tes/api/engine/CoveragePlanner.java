@@ -0,0 +1,92 @@
+package com.tes.api.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Порт CoveragePlanner.select_for_season (ml/coverage.py): жадное покрытие арок
+ * с жёстким лимитом эпизодов на сезон в зависимости от immersion.
+ * Арки эпизодов заранее упакованы в {@link ArcCoverageIndex}, выигрыш — popcount пересечения;
+ * всё рабочее состояние живёт в переиспользуемом {@link Scratch}.
+ */
+public final class CoveragePlanner {
+
+    /** CoverageConfig.max_per_season_by_immersion: immersion 1..5 → лимит эпизодов. */
+    private static final int[] MAX_PER_SEASON = {0, 1, 2, 3, 4, 6};
+
+    /** Наибольший лимит эпизодов на сезон. */
+    public static final int MAX_CAP = 6;
+
+    private CoveragePlanner() {
+    }
+
+    public static int maxPerSeason(int immersion) {
+        return MAX_PER_SEASON[Math.max(1, Math.min(5, immersion))];
+    }
+
+    /** Рабочие массивы одного потока; размер — по самому большому сезону. */
+    public static final class Scratch {
+        final long[] uncovered;
+        final boolean[] taken;
+        final int[] selected = new int[MAX_CAP];
+
+        public Scratch(int stride, int maxCandidates) {
+            this.uncovered = new long[stride];
+            this.taken = new boolean[maxCandidates];
+        }
+
+        /** i-й выбранный индекс эпизода (после selectForSeason). */
+        public int selected(int i) {
+            return selected[i];
+        }
+    }
+
+    /**
+     * @param candidates индексы эпизодов сезона, отсортированные по score по убыванию
+     * @param scores     score по индексу эпизода
+     * @param arcs       маски арок эпизодов
+     * @param required   арки, которые нужно покрыть; пустые — просто top-N по score
+     * @return сколько эпизодов выбрано; индексы — {@code scratch.selected(0..n-1)} в порядке выбора
+     */
+    public static int selectForSeason(int[] candidates, float[] scores, ArcCoverageIndex arcs,
+                                      Collection<String> required, int immersion, Scratch scratch) {
+        int cap = Math.min(maxPerSeason(immersion), candidates.length);
+        int[] selected = scratch.selected;
+
+        if (required.isEmpty()) {
+            // выигрыш всегда 0: побеждает лучший score, кандидаты уже отсортированы
+            System.arraycopy(candidates, 0, selected, 0, cap);
+            return cap;
+        }
+
+        long[] uncovered = scratch.uncovered;
+        // арки вне датасета не покрываются никогда, но держат цикл до лимита, как в Python
+        boolean unknownLeft = arcs.mask(required, uncovered) > 0;
+        boolean[] taken = scratch.taken;
+        Arrays.fill(taken, 0, candidates.length, false);
+
+        int count = 0;
+        while (count < cap && (unknownLeft || !arcs.isEmpty(uncovered))) {
+            int best = -1;
+            int bestGain = -1;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            for (int c = 0; c < candidates.length; c++) {
+                if (taken[c]) continue;
+                int ep = candidates[c];
+                int gain = arcs.gain(ep, uncovered);
+                // tie-break по score
+                if (gain > bestGain || (gain == bestGain && scores[ep] > bestScore)) {
+                    bestGain = gain;
+                    bestScore = scores[ep];
+                    best = c;
+                }
+            }
+            if (best == -1) break;
+
+            taken[best] = true;
+            selected[count++] = candidates[best];
+            arcs.cover(candidates[best], uncovered);
+        }
+        return count;
+    }
+}
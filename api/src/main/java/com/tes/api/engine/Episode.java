@@ -0,0 +1,9 @@
+package com.tes.api.engine;
+
+import java.util.List;
+
+/** Эпизод датасета (ml/data/*.yaml) в нормализованном виде, как его видит ml/app.py. */
+public record Episode(
+        String id, int season, int episode, String title, String summary, List<String> arcs
+) {
+}
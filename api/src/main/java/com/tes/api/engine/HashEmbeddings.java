@@ -0,0 +1,76 @@
+package com.tes.api.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Порт FakeEmbeddings из ml/embeddings.py: детерминированные векторы из sha-256.
+ * Арифметика во float32 в том же порядке, что и у numpy, чтобы ранжирование совпадало с Python.
+ */
+public final class HashEmbeddings {
+
+    public static final int DIM = 64;
+
+    /** float(0xFFFFFFFFFFFFFFFF) в Python. */
+    private static final double U64_MAX = 18446744073709551615.0;
+
+    private HashEmbeddings() {
+    }
+
+    /** embed_text: вектор, нормализованный по L2. */
+    public static float[] embed(String text) {
+        MessageDigest sha = sha256();
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) {
+            byte[] h = sha.digest((i + ":" + text).getBytes(StandardCharsets.UTF_8));
+            // int(hexdigest[:16], 16) — первые 8 байт, big-endian, без знака
+            long bits = ByteBuffer.wrap(h, 0, 8).getLong();
+            double val = unsignedToDouble(bits) / U64_MAX;
+            v[i] = (float) ((val * 2.0) - 1.0);
+        }
+        return normalize(v);
+    }
+
+    /** Ещё одна L2-нормализация, как в cosine_matrix. */
+    public static float[] normalize(float[] v) {
+        float n = norm(v);
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) {
+            out[i] = v[i] / n;
+        }
+        return out;
+    }
+
+    public static float dot(float[] a, float[] b) {
+        float s = 0f;
+        for (int i = 0; i < a.length; i++) {
+            s += a[i] * b[i];
+        }
+        return s;
+    }
+
+    private static float norm(float[] v) {
+        float s = 0f;
+        for (float x : v) {
+            s += x * x;
+        }
+        // + 1e-12 из Python теряется при округлении до float32
+        return (float) Math.sqrt(s);
+    }
+
+    /** Корректно округлённое преобразование беззнакового long в double (как int → float в Python). */
+    private static double unsignedToDouble(long x) {
+        if (x >= 0) return (double) x;
+        return ((double) ((x >>> 1) | (x & 1))) * 2.0;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
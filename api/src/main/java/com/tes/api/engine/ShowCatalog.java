@@ -0,0 +1,256 @@
+package com.tes.api.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок каталога сериалов: эпизоды всех шоу по колонкам (int[] на поле),
+ * строки — id в общий {@link StringPool}. Арки интернированы: арка эпизода — int id той же строки пула.
+ *
+ * <p>Эпизоды шоу упорядочены по (season, episode), так что сезон — непрерывный диапазон индексов.
+ * На эпизод — 6 int'ов и по int'у на арку вместо Episode + List + String'ов в куче.
+ */
+public final class ShowCatalog {
+
+    private static final ShowCatalog EMPTY = new ShowCatalog(Map.of(), new StringPool.Builder().build());
+
+    private final Map<String, Show> shows;
+    private final StringPool pool;
+
+    private ShowCatalog(Map<String, Show> shows, StringPool pool) {
+        this.shows = shows;
+        this.pool = pool;
+    }
+
+    public static ShowCatalog empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return shows.isEmpty();
+    }
+
+    /** Шоу или null. */
+    public Show show(String showId) {
+        return shows.get(showId);
+    }
+
+    public Set<String> showIds() {
+        return shows.keySet();
+    }
+
+    /**
+     * Есть ли такое шоу и осмыслен ли для него targetSeason: 1..maxSeason + 1
+     * (рекомендации — по сезонам до целевого, как ключи AnswerTableService).
+     */
+    public boolean accepts(String showId, int targetSeason) {
+        Show show = shows.get(showId);
+        return show != null && targetSeason >= 1 && targetSeason <= show.maxSeason() + 1;
+    }
+
+    public int episodeCount() {
+        int n = 0;
+        for (Show s : shows.values()) {
+            n += s.size();
+        }
+        return n;
+    }
+
+    /** Колонки всех шоу и общий пул строк, байт (оценка размеров массивов). */
+    public long footprintBytes() {
+        long bytes = pool.footprintBytes();
+        for (Show s : shows.values()) {
+            bytes += s.footprintBytes();
+        }
+        return bytes;
+    }
+
+    /** Эпизоды одного шоу по колонкам; строки — в пуле каталога. */
+    public static final class Show {
+
+        private final String showId;
+        private final String title;
+        private final String version;
+        private final StringPool pool;
+        private final int[] seasons;
+        private final int[] numbers;
+        private final int[] ids;
+        private final int[] titles;
+        private final int[] summaries;
+        /** Арки эпизода i — arcs[arcStart[i] .. arcStart[i + 1]]. */
+        private final int[] arcStart;
+        private final int[] arcs;
+
+        private Show(String showId, String title, String version, StringPool pool, int[] seasons, int[] numbers,
+                     int[] ids, int[] titles, int[] summaries, int[] arcStart, int[] arcs) {
+            this.showId = showId;
+            this.title = title;
+            this.version = version;
+            this.pool = pool;
+            this.seasons = seasons;
+            this.numbers = numbers;
+            this.ids = ids;
+            this.titles = titles;
+            this.summaries = summaries;
+            this.arcStart = arcStart;
+            this.arcs = arcs;
+        }
+
+        public String showId() {
+            return showId;
+        }
+
+        public String title() {
+            return title;
+        }
+
+        /** sha-256 исходного файла, как у ShowDataset. */
+        public String version() {
+            return version;
+        }
+
+        public int size() {
+            return seasons.length;
+        }
+
+        public int maxSeason() {
+            return seasons.length == 0 ? 0 : seasons[seasons.length - 1];
+        }
+
+        public int season(int i) {
+            return seasons[i];
+        }
+
+        public int episode(int i) {
+            return numbers[i];
+        }
+
+        public String title(int i) {
+            return pool.get(titles[i]);
+        }
+
+        public int arcCount(int i) {
+            return arcStart[i + 1] - arcStart[i];
+        }
+
+        /** Id арки в пуле: одинаковые арки (и в разных шоу) — один id. */
+        public int arcId(int i, int k) {
+            return arcs[arcStart[i] + k];
+        }
+
+        /** Первый индекс эпизода сезона season или больший, если такого сезона нет. */
+        public int seasonStart(int season) {
+            int lo = 0;
+            int hi = seasons.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (seasons[mid] < season) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /** Эпизод i как объект — для движка и переноса в следующий снимок; на горячем пути не нужен. */
+        public Episode get(int i) {
+            List<String> a = new ArrayList<>(arcCount(i));
+            for (int k = arcStart[i]; k < arcStart[i + 1]; k++) {
+                a.add(pool.get(arcs[k]));
+            }
+            return new Episode(pool.get(ids[i]), seasons[i], numbers[i], pool.get(titles[i]),
+                    pool.get(summaries[i]), List.copyOf(a));
+        }
+
+        public List<Episode> episodes() {
+            List<Episode> out = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                out.add(get(i));
+            }
+            return out;
+        }
+
+        long footprintBytes() {
+            return 5 * StringPool.arrayBytes(seasons.length, 4)
+                    + StringPool.arrayBytes(arcStart.length, 4)
+                    + StringPool.arrayBytes(arcs.length, 4);
+        }
+    }
+
+    /** Собирает снимок; пул строк общий для всех добавленных шоу. Не потокобезопасен. */
+    public static final class Builder {
+
+        private static final Comparator<Episode> ORDER =
+                Comparator.comparingInt(Episode::season).thenComparingInt(Episode::episode);
+
+        private record Pending(String showId, String title, String version, int[] seasons, int[] numbers,
+                               int[] ids, int[] titles, int[] summaries, int[] arcStart, int[] arcs) {
+        }
+
+        private final StringPool.Builder pool = new StringPool.Builder();
+        private final Map<String, Pending> shows = new LinkedHashMap<>();
+
+        public boolean contains(String showId) {
+            return shows.containsKey(showId);
+        }
+
+        public Builder add(ShowDataset dataset) {
+            return add(dataset.showId(), dataset.title(), dataset.version(), dataset.episodes());
+        }
+
+        /** Переносит шоу из прежнего снимка (его строки — в новый пул). */
+        public Builder add(Show show) {
+            return add(show.showId(), show.title(), show.version(), show.episodes());
+        }
+
+        public Builder add(String showId, String title, String version, List<Episode> episodes) {
+            if (shows.containsKey(showId)) {
+                throw new IllegalArgumentException("duplicate show: " + showId);
+            }
+            Episode[] sorted = episodes.toArray(new Episode[0]);
+            Arrays.sort(sorted, ORDER);
+            int n = sorted.length;
+            int[] seasons = new int[n];
+            int[] numbers = new int[n];
+            int[] ids = new int[n];
+            int[] titles = new int[n];
+            int[] summaries = new int[n];
+            int[] arcStart = new int[n + 1];
+            int arcTotal = 0;
+            for (Episode e : sorted) {
+                arcTotal += e.arcs().size();
+            }
+            int[] arcs = new int[arcTotal];
+            int a = 0;
+            for (int i = 0; i < n; i++) {
+                Episode e = sorted[i];
+                seasons[i] = e.season();
+                numbers[i] = e.episode();
+                ids[i] = pool.intern(e.id());
+                titles[i] = pool.intern(e.title());
+                summaries[i] = pool.intern(e.summary());
+                arcStart[i] = a;
+                for (String arc : e.arcs()) {
+                    arcs[a++] = pool.intern(arc);
+                }
+            }
+            arcStart[n] = a;
+            shows.put(showId, new Pending(showId, title, version, seasons, numbers, ids, titles, summaries, arcStart, arcs));
+            return this;
+        }
+
+        public ShowCatalog build() {
+            StringPool frozen = pool.build();
+            Map<String, Show> out = new LinkedHashMap<>();
+            for (Pending p : shows.values()) {
+                out.put(p.showId(), new Show(p.showId(), p.title(), p.version(), frozen, p.seasons(), p.numbers(),
+                        p.ids(), p.titles(), p.summaries(), p.arcStart(), p.arcs()));
+            }
+            return new ShowCatalog(Collections.unmodifiableMap(out), frozen);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.tes.api.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Каталог всех сериалов из каталога YAML-файлов (или из одного файла): снимок {@link ShowCatalog}
+ * меняется атомарно, читатели его не блокируют. Пересборка — только если изменился набор файлов
+ * или sha-256 хотя бы одного; неизменённые шоу переносятся из прежнего снимка без разбора YAML.
+ * Файл, который не разобрался, оставляет в каталоге прежнюю версию своего шоу.
+ *
+ * <p>{@link #watch} следит за каталогом (WatchService) и перечитывает его после затишья в событиях;
+ * раз в poll-interval — в любом случае: события теряются на части ФС (bind-mount, NFS).
+ */
+public final class ShowCatalogRegistry implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShowCatalogRegistry.class);
+
+    /** Редактор пишет файл в несколько приёмов: ждём, пока события стихнут. */
+    private static final long DEBOUNCE_MILLIS = 200;
+    private static final int EPISODES_PER_REPORT = 100_000;
+
+    private final Path path;
+    private final AtomicReference<ShowCatalog> current = new AtomicReference<>(ShowCatalog.empty());
+
+    // под this
+    private Map<Path, String> versions = Map.of();
+    private Map<Path, String> showOf = Map.of();
+    private Thread watcher;
+    private WatchService watchService;
+
+    public ShowCatalogRegistry(Path path) {
+        this.path = path;
+    }
+
+    public ShowCatalog current() {
+        return current.get();
+    }
+
+    /** @return true, если снимок заменён */
+    public synchronized boolean reload() throws IOException {
+        Map<Path, byte[]> contents = new LinkedHashMap<>();
+        Map<Path, String> shas = new LinkedHashMap<>();
+        for (Path file : files()) {
+            try {
+                byte[] bytes = Files.readAllBytes(file);
+                contents.put(file, bytes);
+                shas.put(file, ShowDatasetLoader.sha256(bytes));
+            } catch (IOException e) {
+                // удалён между листингом и чтением — будто его и не было
+                log.warn("Show file {} skipped: {}", file, e.toString());
+            }
+        }
+        if (shas.equals(versions)) {
+            return false;
+        }
+
+        ShowCatalog previous = current.get();
+        ShowCatalog.Builder builder = new ShowCatalog.Builder();
+        Map<Path, String> shows = new HashMap<>();
+        for (Map.Entry<Path, String> e : shas.entrySet()) {
+            Path file = e.getKey();
+            ShowCatalog.Show kept = showOf.containsKey(file) ? previous.show(showOf.get(file)) : null;
+            String showId;
+            if (kept != null && e.getValue().equals(versions.get(file))) {
+                showId = kept.showId();
+                if (!builder.contains(showId)) builder.add(kept);
+            } else {
+                try {
+                    ShowDataset dataset = ShowDatasetLoader.parse(contents.get(file),
+                            ShowDatasetLoader.fileStem(file.getFileName().toString()));
+                    showId = dataset.showId();
+                    if (builder.contains(showId)) {
+                        log.warn("Show {} from {} ignored: already loaded from another file", showId, file);
+                        continue;
+                    }
+                    builder.add(dataset);
+                } catch (RuntimeException ex) {
+                    if (kept == null) {
+                        log.warn("Show file {} not loaded: {}", file, ex.toString());
+                        continue;
+                    }
+                    log.warn("Show file {} not loaded, keeping version {} of {}: {}",
+                            file, kept.version(), kept.showId(), ex.toString());
+                    showId = kept.showId();
+                    if (!builder.contains(showId)) builder.add(kept);
+                }
+            }
+            shows.put(file, showId);
+        }
+
+        ShowCatalog next = builder.build();
+        current.set(next);
+        versions = Map.copyOf(shas);
+        showOf = Map.copyOf(shows);
+        int episodes = next.episodeCount();
+        long bytes = next.footprintBytes();
+        log.info("Show catalog loaded from {}: shows={}, episodes={}, bytes={}, bytesPer100kEpisodes={}",
+                path, next.showIds(), episodes, bytes,
+                episodes == 0 ? 0 : bytes * EPISODES_PER_REPORT / episodes);
+        return true;
+    }
+
+    private List<Path> files() throws IOException {
+        if (!Files.isDirectory(path)) {
+            if (!Files.exists(path)) {
+                throw new IOException("no such file or directory: " + path);
+            }
+            return List.of(path);
+        }
+        try (Stream<Path> list = Files.list(path)) {
+            return list.filter(p -> {
+                String name = p.getFileName().toString();
+                return (name.endsWith(".yaml") || name.endsWith(".yml")) && Files.isRegularFile(p);
+            }).sorted().toList();
+        }
+    }
+
+    /** Запускает фоновое слежение; без WatchService (каталога нет, ФС не умеет) — только опрос. */
+    public synchronized void watch(Duration pollInterval) {
+        if (watcher != null) {
+            return;
+        }
+        Path dir = Files.isDirectory(path) ? path : path.toAbsolutePath().getParent();
+        try {
+            watchService = dir.getFileSystem().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Show catalog {} not watched, polling every {}: {}", dir, pollInterval, e.toString());
+            closeWatchService();
+        }
+        WatchService ws = watchService;
+        watcher = new Thread(() -> loop(ws, Math.max(1, pollInterval.toMillis())), "show-catalog-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void loop(WatchService ws, long pollMillis) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (ws == null) {
+                    Thread.sleep(pollMillis);
+                } else {
+                    WatchKey key = ws.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    while (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                        key = ws.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+                try {
+                    reload();
+                } catch (Exception e) {
+                    log.warn("Show catalog reload failed: {}", e.toString());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close()
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+        closeWatchService();
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // закрываем при остановке: сделать больше нечего
+            }
+            watchService = null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.tes.api.engine;
+
+import java.util.List;
+
+/**
+ * Неизменяемый снимок датасета одного сериала.
+ *
+ * @param version sha-256 исходного файла: меняется вместе с содержимым
+ */
+public record ShowDataset(
+        String showId,
+        String title,
+        List<Episode> episodes,
+        String version
+) {
+    public static ShowDataset empty(String showId) {
+        return new ShowDataset(showId, "", List.of(), "empty");
+    }
+
+    public boolean isEmpty() {
+        return episodes.isEmpty();
+    }
+
+    public int maxSeason() {
+        int max = 0;
+        for (Episode e : episodes) {
+            max = Math.max(max, e.season());
+        }
+        return max;
+    }
+}
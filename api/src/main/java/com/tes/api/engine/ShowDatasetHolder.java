@@ -0,0 +1,72 @@
+package com.tes.api.engine;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Текущий датасет шоу: снимок меняется атомарно и только если изменился sha-256.
+ *
+ * <p>Два источника: отдельный файл (перечитывается через {@link #reload}) или шоу из
+ * {@link ShowCatalogRegistry} — тогда датасет всегда той же версии, что и каталог, по которому
+ * проверяются запросы, и меняется вместе с ним. Эпизоды из каталога идут в порядке (season, episode).
+ */
+public final class ShowDatasetHolder {
+
+    private final Resource resource;
+    private final ShowCatalogRegistry catalog;
+    private final String showId;
+    private final AtomicReference<ShowDataset> current;
+
+    public ShowDatasetHolder(Resource resource) {
+        this.resource = resource;
+        this.catalog = null;
+        this.showId = ShowDatasetLoader.fileStem(resource.getFilename());
+        this.current = new AtomicReference<>(ShowDataset.empty(showId));
+    }
+
+    public ShowDatasetHolder(ShowCatalogRegistry catalog, String showId) {
+        this.resource = null;
+        this.catalog = catalog;
+        this.showId = showId;
+        this.current = new AtomicReference<>(ShowDataset.empty(showId));
+    }
+
+    /** Пока версия не меняется — один и тот же экземпляр (движок сравнивает по ссылке). */
+    public ShowDataset current() {
+        ShowDataset dataset = current.get();
+        if (catalog == null) {
+            return dataset;
+        }
+        ShowCatalog.Show show = catalog.current().show(showId);
+        String version = show == null ? ShowDataset.empty(showId).version() : show.version();
+        if (dataset.version().equals(version)) {
+            return dataset;
+        }
+        ShowDataset next = show == null
+                ? ShowDataset.empty(showId)
+                : new ShowDataset(show.showId(), show.title(), List.copyOf(show.episodes()), show.version());
+        return current.compareAndSet(dataset, next) ? next : current.get();
+    }
+
+    /** @return true, если содержимое изменилось и снимок заменён */
+    public boolean reload() throws IOException {
+        if (catalog != null) {
+            String before = current().version();
+            catalog.reload();
+            return !current().version().equals(before);
+        }
+        byte[] bytes;
+        try (InputStream in = resource.getInputStream()) {
+            bytes = in.readAllBytes();
+        }
+        if (ShowDatasetLoader.sha256(bytes).equals(current.get().version())) {
+            return false;
+        }
+        current.set(ShowDatasetLoader.parse(bytes, ShowDatasetLoader.fileStem(resource.getFilename())));
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package com.tes.api.engine;
+
+import org.springframework.core.io.Resource;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Читает YAML датасета так же лояльно, как ml/app.py (_load_episodes_from_yaml):
+ * <ul>
+ *   <li>{@code [ {season, episode|number, title, ...}, ... ]}</li>
+ *   <li>{@code { episodes: [...] }}</li>
+ *   <li>{@code { seasons: { 1: [...], 2: [...] } }}</li>
+ *   <li>{@code { 1: [...], 2: [...] }}</li>
+ * </ul>
+ */
+public final class ShowDatasetLoader {
+
+    private ShowDatasetLoader() {
+    }
+
+    public static ShowDataset load(Resource resource) throws IOException {
+        byte[] bytes;
+        try (InputStream in = resource.getInputStream()) {
+            bytes = in.readAllBytes();
+        }
+        String fallbackId = fileStem(resource.getFilename());
+        return parse(bytes, fallbackId);
+    }
+
+    public static ShowDataset parse(byte[] bytes, String fallbackId) {
+        Object data = new Yaml(new SafeConstructor(new LoaderOptions()))
+                .load(new String(bytes, StandardCharsets.UTF_8));
+
+        String showId = fallbackId;
+        String title = "";
+        List<Episode> episodes = new ArrayList<>();
+
+        if (data instanceof List<?> list) {
+            addAll(episodes, list, 0);
+        } else if (data instanceof Map<?, ?> map) {
+            if (map.get("show") != null) showId = String.valueOf(map.get("show"));
+            if (map.get("title") != null) title = String.valueOf(map.get("title"));
+
+            if (map.get("episodes") instanceof List<?> list) {
+                addAll(episodes, list, 0);
+            } else if (map.get("seasons") instanceof Map<?, ?> seasons) {
+                addSeasons(episodes, seasons);
+            } else {
+                // мапа {season: [ ... ]}
+                addSeasons(episodes, map);
+            }
+        }
+        return new ShowDataset(showId, title, List.copyOf(episodes), sha256(bytes));
+    }
+
+    private static void addSeasons(List<Episode> out, Map<?, ?> seasons) {
+        for (Map.Entry<?, ?> e : seasons.entrySet()) {
+            Integer season = toInt(e.getKey());
+            if (season != null && e.getValue() instanceof List<?> list) {
+                addAll(out, list, season);
+            }
+        }
+    }
+
+    private static void addAll(List<Episode> out, List<?> raw, int defaultSeason) {
+        for (Object o : raw) {
+            Map<?, ?> ep = (o instanceof Map<?, ?> m) ? m : Map.of();
+            Integer season = toInt(ep.get("season"));
+            // нормализация номера эпизода: episode | number
+            Integer number = toInt(ep.get("episode"));
+            if (number == null) number = toInt(ep.get("number"));
+            out.add(new Episode(
+                    str(ep.get("id")),
+                    season != null ? season : defaultSeason,
+                    number != null ? number : 0,
+                    str(ep.get("title")),
+                    str(ep.get("summary")),
+                    arcs(ep.get("arcs"))
+            ));
+        }
+    }
+
+    private static List<String> arcs(Object v) {
+        if (v instanceof List<?> list) {
+            List<String> out = new ArrayList<>(list.size());
+            for (Object a : list) out.add(String.valueOf(a));
+            return List.copyOf(out);
+        }
+        return (v == null || String.valueOf(v).isBlank()) ? List.of() : List.of(String.valueOf(v));
+    }
+
+    private static String str(Object v) {
+        return v == null ? "" : String.valueOf(v);
+    }
+
+    private static Integer toInt(Object v) {
+        if (v instanceof Number n) return n.intValue();
+        if (v == null) return null;
+        try {
+            return Integer.parseInt(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String fileStem(String filename) {
+        if (filename == null) return "";
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tes.api.engine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый пул строк: каждая различная строка хранится один раз, в UTF-8, в общем byte[];
+ * снаружи на неё ссылаются по int id. Строка {@code i} — байты {@code offsets[i] .. offsets[i + 1]}.
+ *
+ * <p>Вместо объекта String (заголовок, массив, хеш) на строку — 4 байта смещения и сами байты;
+ * повторы (арки, типовые названия) хранятся один раз. Цена — декодирование при {@link #get}.
+ */
+public final class StringPool {
+
+    private final byte[] data;
+    private final int[] offsets;
+
+    private StringPool(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    public String get(int id) {
+        int from = offsets[id];
+        return new String(data, from, offsets[id + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /** Байты массивов пула с заголовками (оценка для 64-битной JVM со сжатыми указателями). */
+    public long footprintBytes() {
+        return arrayBytes(data.length, 1) + arrayBytes(offsets.length, 4);
+    }
+
+    /** Массив примитивов: 16 байт заголовка + данные, с выравниванием до 8. */
+    static long arrayBytes(int length, int width) {
+        return (16L + (long) length * width + 7) & ~7L;
+    }
+
+    /** Строит пул; интернирование — по equals, id выдаются подряд с нуля. Не потокобезопасен. */
+    public static final class Builder {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private byte[] data = new byte[4096];
+        private int[] offsets = new int[256];
+        private int size;
+
+        public int intern(String s) {
+            Integer id = ids.get(s);
+            if (id != null) {
+                return id;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            int from = offsets[size];
+            if (from + bytes.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, from + bytes.length));
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            System.arraycopy(bytes, 0, data, from, bytes.length);
+            offsets[size + 1] = from + bytes.length;
+            ids.put(s, size);
+            return size++;
+        }
+
+        public StringPool build() {
+            return new StringPool(Arrays.copyOf(data, offsets[size]), Arrays.copyOf(offsets, size + 1));
+        }
+    }
+}
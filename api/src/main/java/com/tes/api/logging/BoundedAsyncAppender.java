@@ -0,0 +1,227 @@
+package com.tes.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронный аппендер с ограниченной очередью и явной политикой переполнения.
+ * Поток запроса только кладёт событие в очередь; кодирование и запись в stdout — в потоке аппендера.
+ *
+ * <ul>
+ *   <li>ниже {@code dropBelow} (WARN): отбрасываются, как только очередь заполнена на {@code dropThreshold};</li>
+ *   <li>от {@code dropBelow} до {@code blockAt}: кладутся без ожидания, при полной очереди отбрасываются;</li>
+ *   <li>от {@code blockAt} (ERROR): ждут места до {@code maxBlockMillis}, потом тоже отбрасываются.</li>
+ * </ul>
+ *
+ * Глубина очереди и число отброшенных событий по уровням — в {@link #instances()} для метрик.
+ */
+public class BoundedAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final Collection<BoundedAsyncAppender> INSTANCES = ConcurrentHashMap.newKeySet();
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private int queueSize = 8192;
+    private double dropThreshold = 0.8;
+    private Level dropBelow = Level.WARN;
+    private Level blockAt = Level.ERROR;
+    private long maxBlockMillis = 1000;
+    private long maxFlushMillis = 1000;
+
+    private BlockingQueue<ILoggingEvent> queue;
+    private int dropAt;
+    private Thread worker;
+
+    private final AtomicLong droppedDebug = new AtomicLong();
+    private final AtomicLong droppedInfo = new AtomicLong();
+    private final AtomicLong droppedWarn = new AtomicLong();
+    private final AtomicLong droppedError = new AtomicLong();
+    private final AtomicBoolean prepareFailed = new AtomicBoolean();
+
+    public static Collection<BoundedAsyncAppender> instances() {
+        return List.copyOf(INSTANCES);
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) return;
+        if (queueSize < 1) {
+            addError("queueSize must be positive: " + queueSize);
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        dropAt = (int) Math.max(0, Math.min(queueSize, Math.round(queueSize * dropThreshold)));
+        worker = new Thread(this::drain, "log-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+        INSTANCES.add(this);
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        INSTANCES.remove(this);
+        worker.interrupt();
+        try {
+            worker.join(maxFlushMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // остаток очереди — синхронно, чтобы не потерять последние строки при остановке
+        for (ILoggingEvent e; (e = queue.poll()) != null; ) {
+            appenders.appendLoopOnAppenders(e);
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int level = event.getLevel().toInt();
+        if (level < dropBelow.toInt() && queue.size() >= dropAt) {
+            countDrop(level);
+            return;
+        }
+        // сообщение и MDC фиксируются в потоке вызова: потом их уже не восстановить
+        try {
+            event.prepareForDeferredProcessing();
+        } catch (RuntimeException e) {
+            // без MDC-адаптера, сломанный toString() аргумента: событие не отложить — считаем потерянным
+            countDrop(level);
+            if (prepareFailed.compareAndSet(false, true)) {
+                addError("Log event could not be prepared for async processing and was dropped", e);
+            }
+            return;
+        }
+        boolean queued;
+        if (level >= blockAt.toInt()) {
+            try {
+                queued = queue.offer(event, maxBlockMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(event);
+        }
+        if (!queued) countDrop(level);
+    }
+
+    private void drain() {
+        while (isStarted()) {
+            try {
+                appenders.appendLoopOnAppenders(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                addError("Appender failed", e);
+            }
+        }
+    }
+
+    private void countDrop(int level) {
+        counter(level).incrementAndGet();
+    }
+
+    private AtomicLong counter(int level) {
+        if (level >= Level.ERROR_INT) return droppedError;
+        if (level >= Level.WARN_INT) return droppedWarn;
+        if (level >= Level.INFO_INT) return droppedInfo;
+        return droppedDebug;
+    }
+
+    /* ---------- метрики ---------- */
+
+    public int queueDepth() {
+        BlockingQueue<ILoggingEvent> q = queue;
+        return q == null ? 0 : q.size();
+    }
+
+    public int queueCapacity() {
+        return queueSize;
+    }
+
+    /** Отброшено событий уровня level (DEBUG включает TRACE). */
+    public long dropped(Level level) {
+        return counter(level.toInt()).get();
+    }
+
+    /* ---------- настройки из logback-spring.xml ---------- */
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setDropThreshold(double dropThreshold) {
+        this.dropThreshold = dropThreshold;
+    }
+
+    public void setDropBelow(String level) {
+        this.dropBelow = Level.toLevel(level, Level.WARN);
+    }
+
+    public void setBlockAt(String level) {
+        this.blockAt = Level.toLevel(level, Level.ERROR);
+    }
+
+    public void setMaxBlockMillis(long maxBlockMillis) {
+        this.maxBlockMillis = Math.max(0, maxBlockMillis);
+    }
+
+    public void setMaxFlushMillis(long maxFlushMillis) {
+        this.maxFlushMillis = Math.max(0, maxFlushMillis);
+    }
+
+    /* ---------- AppenderAttachable ---------- */
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
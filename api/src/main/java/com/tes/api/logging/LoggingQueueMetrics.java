@@ -0,0 +1,41 @@
+package com.tes.api.logging;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Очереди {@link BoundedAsyncAppender} в метриках: tes.logging.queue.depth / capacity и
+ * tes.logging.dropped{level} по каждому аппендеру. Аппендеры создаёт logback до контекста Spring,
+ * поэтому берутся из статического реестра при привязке.
+ */
+@Component
+public class LoggingQueueMetrics implements MeterBinder {
+
+    private static final List<Level> LEVELS = List.of(Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR);
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (BoundedAsyncAppender appender : BoundedAsyncAppender.instances()) {
+            String name = appender.getName();
+            Gauge.builder("tes.logging.queue.depth", appender, BoundedAsyncAppender::queueDepth)
+                    .description("Log events waiting in the async appender queue")
+                    .tag("appender", name)
+                    .register(registry);
+            Gauge.builder("tes.logging.queue.capacity", appender, BoundedAsyncAppender::queueCapacity)
+                    .tag("appender", name)
+                    .register(registry);
+            for (Level level : LEVELS) {
+                FunctionCounter.builder("tes.logging.dropped", appender, a -> a.dropped(level))
+                        .description("Log events dropped because the async appender queue was full")
+                        .tags("appender", name, "level", level.levelStr)
+                        .register(registry);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tes.api.metrics;
+
+import com.tes.api.web.TesErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Таймеры этапов пути /recommendations: {@code tes.request.stage{stage, outcome}} с гистограммой
+ * перцентилей. outcome — {@code ok} или код TES-xxx, который получил клиент.
+ *
+ * <p>Горячий путь — чтение из массива по (этап, исход) и {@code Timer.record}: без сборки тегов
+ * и поиска в реестре. Таймер регистрируется при первом использовании пары, чтобы не плодить
+ * пустые гистограммы для исходов, которых не бывает.
+ */
+@Component
+public class StageTimers {
+
+    public enum Stage {
+        /** Весь запрос, от внешнего фильтра до записи ответа. */
+        TOTAL("total"),
+        /** Собственное время RateLimitFilter (без цепочки за ним). */
+        RATE_LIMIT("ratelimit"),
+        /** Собственное время RequestLoggingFilter. */
+        REQUEST_LOG("logging"),
+        /** Контроллер: валидация, сервис, сериализация ответа. */
+        HANDLER("handler"),
+        /** Вызов MlClient, от отправки до разобранного ответа или ошибки. */
+        ML("ml"),
+        /** Ответ ML → DTO → JSON байты. */
+        RENDER("render");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final String[] OUTCOMES;
+
+    static {
+        TesErrorCode[] codes = TesErrorCode.values();
+        OUTCOMES = new String[codes.length + 1];
+        OUTCOMES[0] = "ok";
+        for (TesErrorCode c : codes) OUTCOMES[c.ordinal() + 1] = c.code;
+    }
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final boolean histogram;
+    private final AtomicReferenceArray<Timer> timers;
+
+    public StageTimers(MeterRegistry registry,
+                       @Value("${tes.metrics.stages.enabled:true}") boolean enabled,
+                       @Value("${tes.metrics.stages.histogram:true}") boolean histogram) {
+        this.registry = registry;
+        this.enabled = enabled && registry != null;
+        this.histogram = histogram;
+        this.timers = new AtomicReferenceArray<>(Stage.values().length * OUTCOMES.length);
+    }
+
+    /** Без записи — для тестов и бенчмарков, где метрики не важны. */
+    public static StageTimers disabled() {
+        return new StageTimers(null, false, false);
+    }
+
+    /** @param outcome null — успех */
+    public void record(Stage stage, TesErrorCode outcome, long nanos) {
+        if (!enabled) return;
+        int o = outcome == null ? 0 : outcome.ordinal() + 1;
+        int i = stage.ordinal() * OUTCOMES.length + o;
+        Timer timer = timers.get(i);
+        if (timer == null) {
+            timer = register(stage, o);
+            timers.set(i, timer);
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(Stage stage, int outcome) {
+        return Timer.builder("tes.request.stage")
+                .description("Time spent in a stage of the /recommendations path")
+                .tags("stage", stage.tag, "outcome", OUTCOMES[outcome])
+                .publishPercentileHistogram(histogram)
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    /** Исход по статусу ответа, в терминах кодов GlobalExceptionHandler. */
+    public static TesErrorCode outcomeOf(int status) {
+        if (status < 400) return null;
+        return switch (status) {
+            case 429 -> TesErrorCode.TES_003;
+            case 503 -> TesErrorCode.TES_002;
+            case 504 -> TesErrorCode.TES_004;
+            default -> status < 500 ? TesErrorCode.TES_001 : TesErrorCode.TES_000;
+        };
+    }
+}
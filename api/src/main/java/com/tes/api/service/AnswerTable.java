@@ -0,0 +1,35 @@
+package com.tes.api.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Готовые (уже сериализованные) ответы для всего пространства ключей одного датасета (showId × targetSeason × immersion × language).
+ *
+ * @param version  версия датасета (sha-256 файла), из которого строилась таблица
+ * @param expected сколько ключей должно быть; меньше — часть вызовов ML при сборке не удалась
+ */
+public record AnswerTable(
+        String version,
+        Map<RecommendationKey, RenderedRecommendation> answers,
+        int expected,
+        Instant builtAt,
+        Duration buildTime
+) {
+    public static AnswerTable empty() {
+        return new AnswerTable("", Map.of(), 0, Instant.EPOCH, Duration.ZERO);
+    }
+
+    public RenderedRecommendation get(RecommendationKey key) {
+        return answers.get(key);
+    }
+
+    public int size() {
+        return answers.size();
+    }
+
+    public boolean isComplete() {
+        return expected > 0 && answers.size() == expected;
+    }
+}
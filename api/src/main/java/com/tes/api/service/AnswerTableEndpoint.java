@@ -0,0 +1,36 @@
+package com.tes.api.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** /actuator/answertable: состояние таблицы готовых ответов. */
+@Component
+@ConditionalOnProperty(name = "tes.engine", havingValue = "http", matchIfMissing = true)
+@Endpoint(id = "answertable")
+public class AnswerTableEndpoint {
+
+    private final AnswerTableService answers;
+
+    public AnswerTableEndpoint(AnswerTableService answers) {
+        this.answers = answers;
+    }
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        AnswerTable t = answers.current();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", answers.isEnabled());
+        out.put("building", answers.isBuilding());
+        out.put("version", t.version());
+        out.put("size", t.size());
+        out.put("expected", t.expected());
+        out.put("builtAt", t.builtAt().toString());
+        out.put("buildTimeMs", t.buildTime().toMillis());
+        return out;
+    }
+}
@@ -0,0 +1,221 @@
+package com.tes.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlClient;
+import com.tes.api.engine.ShowDataset;
+import com.tes.api.engine.ShowDatasetHolder;
+import com.tes.api.service.impl.RecommendationServiceHttp;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Прогрев: после старта и при смене датасета в фоне прогоняет через ML все ключи датасета
+ * и атомарно подменяет {@link AnswerTable}. Пока таблица строится, запросы идут обычным путём через ML.
+ * Только при tes.engine=http: встроенный движок отвечает сам, и таблица лишь нагружала бы ML.
+ */
+@Service
+@ConditionalOnProperty(name = "tes.engine", havingValue = "http", matchIfMissing = true)
+public class AnswerTableService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerTableService.class);
+
+    /** Языки RecommendationRequest (@Pattern en|ru). */
+    static final List<String> LANGUAGES = List.of("en", "ru");
+    static final int MAX_IMMERSION = 5;
+    /** Предел паузы между дозапросами недостающих ключей, в интервалах refresh. */
+    static final int MAX_RETRY_BACKOFF = 32;
+
+    private final MlClient mlClient;
+    private final ShowDatasetHolder datasets;
+    private final ObjectMapper om;
+    private final boolean enabled;
+    private final int parallelism;
+
+    private final AtomicReference<AnswerTable> table = new AtomicReference<>(AnswerTable.empty());
+    private final AtomicBoolean building = new AtomicBoolean();
+    // пишет поток сборки, читает планировщик
+    private volatile int retryBackoff = 1;
+    private volatile int ticksUntilRetry;
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "answer-table");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AnswerTableService(MlClient mlClient, ShowDatasetHolder datasets, ObjectMapper om,
+                              @Value("${tes.answers.enabled:false}") boolean enabled,
+                              @Value("${tes.answers.parallelism:4}") int parallelism) {
+        this.mlClient = mlClient;
+        this.datasets = datasets;
+        this.om = om;
+        this.enabled = enabled;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Готовый ответ или null: ключа нет в таблице, таблица от старого датасета или ещё не построена. */
+    public RenderedRecommendation lookup(RecommendationKey key) {
+        AnswerTable t = table.get();
+        if (t.size() == 0 || !t.version().equals(datasets.current().version())) {
+            return null;
+        }
+        return t.get(key);
+    }
+
+    public AnswerTable current() {
+        return table.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isBuilding() {
+        return building.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuildAsync();
+    }
+
+    /**
+     * Таблица от другой версии датасета — сборка заново; неполная — дозапрос только недостающих
+     * ключей, с паузой 1, 2, 4 … {@value #MAX_RETRY_BACKOFF} интервалов после неудачных попыток.
+     * Датасет сам не перечитывает: ShowDatasetHolder следует за каталогом (ShowCatalogRegistry).
+     */
+    @Scheduled(initialDelayString = "${tes.dataset.refresh-interval:PT1M}",
+            fixedDelayString = "${tes.dataset.refresh-interval:PT1M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        AnswerTable t = table.get();
+        if (!t.version().equals(datasets.current().version())) {
+            rebuildAsync();
+        } else if (!t.isComplete() && !building.get() && --ticksUntilRetry <= 0) {
+            runAsync(this::fillMissing);
+        }
+    }
+
+    public void rebuildAsync() {
+        runAsync(this::rebuild);
+    }
+
+    private void runAsync(Supplier<AnswerTable> task) {
+        if (enabled && !datasets.current().isEmpty() && building.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                try {
+                    task.get();
+                } catch (Exception e) {
+                    log.warn("Answer table build failed: {}", e.toString());
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    /** Синхронная сборка всех ключей (фоновой поток или тесты). */
+    public AnswerTable rebuild() {
+        ShowDataset dataset = datasets.current();
+        List<RecommendationKey> keys = keys(dataset);
+        long started = System.nanoTime();
+        retryBackoff = 1;
+
+        AnswerTable built = new AnswerTable(dataset.version(), Map.copyOf(resolve(keys)), keys.size(),
+                Instant.now(), Duration.ofNanos(System.nanoTime() - started));
+        table.set(built);
+        scheduleRetry(built);
+        log.info("Answer table built: version={}, size={}/{}, took={}ms",
+                built.version(), built.size(), built.expected(), built.buildTime().toMillis());
+        return built;
+    }
+
+    /** Дозапрашивает у ML только ключи, которых нет в таблице текущей версии; остальные не трогает. */
+    public AnswerTable fillMissing() {
+        ShowDataset dataset = datasets.current();
+        AnswerTable t = table.get();
+        if (!t.version().equals(dataset.version())) {
+            return rebuild();
+        }
+        List<RecommendationKey> missing = new ArrayList<>();
+        for (RecommendationKey key : keys(dataset)) {
+            if (t.get(key) == null) missing.add(key);
+        }
+        long started = System.nanoTime();
+        Map<RecommendationKey, RenderedRecommendation> answers = new HashMap<>(t.answers());
+        answers.putAll(resolve(missing));
+
+        AnswerTable filled = new AnswerTable(t.version(), Map.copyOf(answers), t.expected(),
+                Instant.now(), Duration.ofNanos(System.nanoTime() - started));
+        table.set(filled);
+        scheduleRetry(filled);
+        log.info("Answer table filled: version={}, size={}/{}, retried={}, took={}ms",
+                filled.version(), filled.size(), filled.expected(), missing.size(), filled.buildTime().toMillis());
+        return filled;
+    }
+
+    /** Ответы ML по ключам; ошибки отдельных ключей не валят сборку: этих ключей просто не будет. */
+    private Map<RecommendationKey, RenderedRecommendation> resolve(List<RecommendationKey> keys) {
+        return Flux.fromIterable(keys)
+                .flatMap(key -> Mono.fromFuture(() -> mlClient.recommendAsync(key.toPayload()))
+                                .map(ml -> Map.entry(key, RenderedRecommendation.of(RecommendationServiceHttp.toResponse(ml), om)))
+                                .onErrorResume(e -> Mono.empty()),
+                        parallelism)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+    }
+
+    private void scheduleRetry(AnswerTable t) {
+        if (t.isComplete()) {
+            retryBackoff = 1;
+            ticksUntilRetry = 0;
+        } else {
+            ticksUntilRetry = retryBackoff;
+            retryBackoff = Math.min(retryBackoff * 2, MAX_RETRY_BACKOFF);
+        }
+    }
+
+    /**
+     * Все валидные ключи датасета: targetSeason 1..maxSeason+1 × immersion 1..5 × язык.
+     * Только шоу tes.dataset.show (ShowDatasetHolder): запросы по остальным шоу каталога
+     * в таблицу не попадают и всегда идут через ML.
+     */
+    static List<RecommendationKey> keys(ShowDataset dataset) {
+        List<RecommendationKey> keys = new ArrayList<>();
+        for (int target = 1; target <= dataset.maxSeason() + 1; target++) {
+            for (int immersion = 1; immersion <= MAX_IMMERSION; immersion++) {
+                for (String language : LANGUAGES) {
+                    keys.add(new RecommendationKey(dataset.showId(), target, immersion, language));
+                }
+            }
+        }
+        return keys;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+}
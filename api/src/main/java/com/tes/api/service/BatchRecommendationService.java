@@ -0,0 +1,109 @@
+package com.tes.api.service;
+
+import com.tes.api.client.MlCallCounter;
+import com.tes.api.dto.BatchRecommendationResponse;
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.web.MlTimeoutException;
+import com.tes.api.web.MlUnavailableException;
+import com.tes.api.web.TesErrorCode;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * POST /recommendations:batch. Одинаковые элементы схлопываются в один вызов,
+ * уникальные ключи уходят в RecommendationService не более чем по {@code parallelism} одновременно
+ * (каждый вызов ML по-прежнему проходит через bulkhead "ml").
+ */
+@Service
+public class BatchRecommendationService {
+
+    private final RecommendationService recommendationService;
+    private final Validator validator;
+    private final MessageSource messages;
+    private final int parallelism;
+
+    public BatchRecommendationService(RecommendationService recommendationService,
+                                      Validator validator,
+                                      MessageSource messages,
+                                      @Value("${tes.batch.parallelism:4}") int parallelism) {
+        this.recommendationService = recommendationService;
+        this.validator = validator;
+        this.messages = messages;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public BatchRecommendationResponse recommend(List<RecommendationRequest> items, Locale locale) {
+        // ключ → первый запрос с этим ключом; невалидные элементы в ML не идут
+        boolean[] valid = new boolean[items.size()];
+        Map<RecommendationKey, RecommendationRequest> distinct = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            RecommendationRequest item = items.get(i);
+            valid[i] = item != null && validator.validate(item).isEmpty();
+            if (valid[i]) {
+                distinct.putIfAbsent(RecommendationKey.of(item), item);
+            }
+        }
+
+        // следующие элементы стартуют на потоках завершившихся вызовов: вызовы ML учитываем этому запросу
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        Map<RecommendationKey, Outcome> outcomes = Flux.fromIterable(distinct.entrySet())
+                .flatMap(e -> Mono.fromFuture(() -> MlCallCounter.callWith(request,
+                                        () -> recommendationService.recommendAsync(e.getValue())))
+                                .map(Outcome::ok)
+                                .onErrorResume(ex -> Mono.just(Outcome.failed(ex)))
+                                .map(outcome -> Map.entry(e.getKey(), outcome)),
+                        parallelism)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+
+        List<BatchRecommendationResponse.Item> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            if (!valid[i]) {
+                results.add(error(i, HttpStatus.BAD_REQUEST, TesErrorCode.TES_001, "error.invalid_request", locale));
+                continue;
+            }
+            Outcome outcome = outcomes.get(RecommendationKey.of(items.get(i)));
+            results.add(outcome.error() == null
+                    ? BatchRecommendationResponse.Item.ok(i, outcome.result().response(), outcome.result().stale())
+                    : failure(i, outcome.error(), locale));
+        }
+        return new BatchRecommendationResponse(results);
+    }
+
+    private record Outcome(RecommendationResult result, Throwable error) {
+        static Outcome ok(RecommendationResult result) { return new Outcome(result, null); }
+        static Outcome failed(Throwable error) { return new Outcome(null, error); }
+    }
+
+    /** Те же коды, что отдаёт GlobalExceptionHandler для одиночного запроса. */
+    private BatchRecommendationResponse.Item failure(int index, Throwable ex, Locale locale) {
+        Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+        if (cause instanceof MlUnavailableException) {
+            return error(index, HttpStatus.SERVICE_UNAVAILABLE, TesErrorCode.TES_002, "error.ml_unavailable", locale);
+        }
+        if (cause instanceof MlTimeoutException) {
+            return error(index, HttpStatus.GATEWAY_TIMEOUT, TesErrorCode.TES_004, "error.timeout", locale);
+        }
+        return error(index, HttpStatus.INTERNAL_SERVER_ERROR, TesErrorCode.TES_000, "error.internal", locale);
+    }
+
+    private BatchRecommendationResponse.Item error(int index, HttpStatus status, TesErrorCode code,
+                                                   String messageKey, Locale locale) {
+        String title = messages.getMessage(messageKey, null, messageKey, locale);
+        return BatchRecommendationResponse.Item.error(index, status.value(), code.code, title);
+    }
+}
@@ -0,0 +1,40 @@
+package com.tes.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Последний удачный ответ ML по ключу запроса — запас на время, когда ML недоступен
+ * (tes.ml.strict=false). В отличие от кэша ответов, записи не истекают по времени
+ * и не сбрасываются при смене датасета: устаревший ответ лучше ошибки 503.
+ */
+@Component
+public class LastKnownGoodStore {
+
+    /** Ответ и момент, когда ML его отдал. */
+    public record Entry(RenderedRecommendation rendered, Instant storedAt) {
+    }
+
+    private final Cache<RecommendationKey, Entry> entries;
+
+    public LastKnownGoodStore(@Value("${tes.ml.fallback.max-size:10000}") long maxSize) {
+        this.entries = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    public void put(RecommendationKey key, RenderedRecommendation rendered) {
+        entries.put(key, new Entry(rendered, Instant.now()));
+    }
+
+    /** Null — для ключа ещё не было удачного ответа. */
+    public Entry get(RecommendationKey key) {
+        return entries.getIfPresent(key);
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+}
@@ -0,0 +1,244 @@
+package com.tes.api.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал «ключ → байты» в memory-mapped файле фиксированного размера.
+ *
+ * <p>Формат: заголовок {@code TESL} + версия формата, затем записи
+ * {@code [int len][int crc32c][short keyLen][key utf-8][value]}, где len — длина всего после crc.
+ * Запись пишется целиком, а len — последним: до него запись невидима, а оборванную посреди записи
+ * (процесс упал) отсекает crc при открытии. Хвост файла за последней записью — нули.
+ *
+ * <p>Индекс в памяти: ключ → (смещение значения &lt;&lt; 32 | длина). Чтение — срез отображения
+ * без копирования и без блокировок; писатель один (append/compact синхронизированы).
+ * Повторная запись ключа добавляет новую версию, старая становится мусором до {@link #compact}.
+ */
+public final class MappedResponseLog implements Closeable {
+
+    private static final int MAGIC = 0x5445534C; // "TESL"
+    private static final int FORMAT = 1;
+    static final int HEADER = 8;
+    private static final int RECORD_OVERHEAD = 4 + 4 + 2;
+
+    private final Path file;
+    private final int capacity;
+
+    /** Отображение и индекс меняются вместе при компакции; читатели берут снимок. */
+    private record Segment(MappedByteBuffer buffer, Map<String, Long> index) {
+    }
+
+    private volatile Segment segment;
+    // под this
+    private int end;
+    private long deadBytes;
+
+    private MappedResponseLog(Path file, int capacity, Segment segment, int end, long deadBytes) {
+        this.file = file;
+        this.capacity = capacity;
+        this.segment = segment;
+        this.end = end;
+        this.deadBytes = deadBytes;
+    }
+
+    /** Открывает (или создаёт) журнал; оборванный хвост после сбоя отбрасывается. */
+    public static MappedResponseLog open(Path file, int capacity) throws IOException {
+        if (capacity <= HEADER + RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("capacity too small: " + capacity);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        // недописанная компакция: основной файл цел, временный не нужен
+        Files.deleteIfExists(compactPath(file));
+
+        MappedByteBuffer buffer = map(file, capacity);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            // новый файл или чужой формат: начинаем с пустого журнала
+            buffer.putInt(HEADER, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT);
+        }
+
+        Map<String, Long> index = new ConcurrentHashMap<>();
+        long dead = 0;
+        int p = HEADER;
+        while (p + 8 <= capacity) {
+            int len = buffer.getInt(p);
+            if (len < 2 || len > capacity - p - 8) break;
+            if (crc(buffer, p + 8, len) != buffer.getInt(p + 4)) break;
+            int keyLen = Short.toUnsignedInt(buffer.getShort(p + 8));
+            if (keyLen > len - 2) break;
+            String key = readKey(buffer, p + 10, keyLen);
+            int valueOffset = p + 10 + keyLen;
+            Long previous = index.put(key, pack(valueOffset, len - 2 - keyLen));
+            if (previous != null) dead += recordSize(key, length(previous));
+            p += 8 + len;
+        }
+        // за последней целой записью может лежать оборванная: следующий append её перезапишет
+        return new MappedResponseLog(file, capacity, new Segment(buffer, index), p, dead);
+    }
+
+    /** Значение ключа — read-only срез отображения (без копирования) или null. */
+    public ByteBuffer get(String key) {
+        Segment s = segment;
+        Long packed = s.index().get(key);
+        if (packed == null) return null;
+        return s.buffer().slice(offset(packed), length(packed)).asReadOnlyBuffer();
+    }
+
+    /** Дописывает запись; false — места нет (нужна компакция) или ключ длиннее 64 КБ. */
+    public synchronized boolean append(String key, byte[] value) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        if (k.length > 0xFFFF) return false;
+        long size = (long) RECORD_OVERHEAD + k.length + value.length;
+        if (end + size > capacity) return false;
+
+        Segment s = segment;
+        MappedByteBuffer b = s.buffer();
+        int p = end;
+        int len = 2 + k.length + value.length;
+        // терминатор за записью: остатки оборванной записи длиннее этой не прочтутся как запись
+        if (p + 8 + len + 4 <= capacity) b.putInt(p + 8 + len, 0);
+        b.putShort(p + 8, (short) k.length);
+        b.put(p + 10, k);
+        b.put(p + 10 + k.length, value);
+        b.putInt(p + 4, crc(b, p + 8, len));
+        // длина — последней: до этого момента запись не существует
+        b.putInt(p, len);
+        end = p + 8 + len;
+
+        Long previous = s.index().put(key, pack(p + 10 + k.length, value.length));
+        if (previous != null) deadBytes += recordSize(key, length(previous));
+        return true;
+    }
+
+    /**
+     * Переписывает живые записи, для которых {@code keep(key, value)} истинно, в новый файл и атомарно
+     * подменяет им текущий. Читатели старого снимка дочитывают старое отображение.
+     * Если освобождать нечего (нет мусора и keep оставляет всё) — файл не трогается.
+     *
+     * @return сколько байт освободилось
+     */
+    public synchronized long compact(BiPredicate<String, ByteBuffer> keep) throws IOException {
+        Segment old = segment;
+        List<Map.Entry<String, Long>> live = new ArrayList<>(old.index().size());
+        for (Map.Entry<String, Long> e : old.index().entrySet()) {
+            ByteBuffer value = old.buffer().slice(offset(e.getValue()), length(e.getValue())).asReadOnlyBuffer();
+            if (keep.test(e.getKey(), value)) live.add(e);
+        }
+        if (deadBytes == 0 && live.size() == old.index().size()) {
+            return 0;
+        }
+
+        Path tmp = compactPath(file);
+        Files.deleteIfExists(tmp);
+        MappedByteBuffer target = map(tmp, capacity);
+        target.putInt(0, MAGIC);
+        target.putInt(4, FORMAT);
+
+        Map<String, Long> index = new ConcurrentHashMap<>();
+        int p = HEADER;
+        for (Map.Entry<String, Long> e : live) {
+            byte[] k = e.getKey().getBytes(StandardCharsets.UTF_8);
+            int valueLen = length(e.getValue());
+            int len = 2 + k.length + valueLen;
+            target.putShort(p + 8, (short) k.length);
+            target.put(p + 10, k);
+            target.put(p + 10 + k.length, old.buffer(), offset(e.getValue()), valueLen);
+            target.putInt(p + 4, crc(target, p + 8, len));
+            target.putInt(p, len);
+            index.put(e.getKey(), pack(p + 10 + k.length, valueLen));
+            p += 8 + len;
+        }
+        target.force();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long freed = end - p;
+        segment = new Segment(target, index);
+        end = p;
+        deadBytes = 0;
+        return freed;
+    }
+
+    /** Сброс изменённых страниц на диск (без него данные переживают падение процесса, но не ОС). */
+    public void force() {
+        segment.buffer().force();
+    }
+
+    public int size() {
+        return segment.index().size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized int usedBytes() {
+        return end;
+    }
+
+    /** Байты перезаписанных версий, которые освободит компакция. */
+    public synchronized long deadBytes() {
+        return deadBytes;
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        try (FileChannel ch = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // отображение остаётся действительным и после закрытия канала
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private static Path compactPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    private static int crc(ByteBuffer b, int from, int len) {
+        CRC32C crc = new CRC32C();
+        crc.update(b.slice(from, len));
+        return (int) crc.getValue();
+    }
+
+    private static String readKey(ByteBuffer b, int from, int len) {
+        byte[] k = new byte[len];
+        b.get(from, k);
+        return new String(k, StandardCharsets.UTF_8);
+    }
+
+    private static long recordSize(String key, int valueLen) {
+        return RECORD_OVERHEAD + key.getBytes(StandardCharsets.UTF_8).length + valueLen;
+    }
+
+    private static long pack(int offset, int length) {
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int offset(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int length(long packed) {
+        return (int) packed;
+    }
+}
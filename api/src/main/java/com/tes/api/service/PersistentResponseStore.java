@@ -0,0 +1,207 @@
+package com.tes.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.dto.RecommendationResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализованные ответы на диске ({@link MappedResponseLog}), чтобы после рестарта кэш ответов
+ * наполнялся с диска, а не через ML. Ключ — кортеж запроса плюс версия датасета: ответы старой
+ * версии просто не находятся и выбрасываются при компакции.
+ *
+ * <p>Значение — {@code [long время записи, мс][json]}. Ответ старше ttl не отдаётся (промах, идём в ML):
+ * файл ускоряет старт, но не держит ответы дольше, чем кэш в памяти.
+ *
+ * <p>Запись — в фоне, одним потоком, через ограниченную очередь: запрос её не ждёт, а при
+ * переполнении ответ просто не сохраняется (tes.store.dropped). Выключено (tes.store.enabled=false)
+ * или файл не открылся — get() всегда null, put — no-op.
+ */
+@Service
+public class PersistentResponseStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentResponseStore.class);
+
+    private static final int STORED_AT = Long.BYTES;
+    /** Компакция не помогла или упала: следующая — не раньше чем через столько, дальше вдвое дольше. */
+    private static final Duration MIN_COMPACT_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration MAX_COMPACT_BACKOFF = Duration.ofMinutes(10);
+
+    private final ObjectMapper om;
+    private final MappedResponseLog store;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter expired;
+    private final Counter dropped;
+    private final ThreadPoolExecutor writer;
+
+    // только поток writer
+    private Duration compactBackoff = MIN_COMPACT_BACKOFF;
+    private long compactNotBefore;
+
+    @Autowired
+    public PersistentResponseStore(ObjectMapper om, MeterRegistry meterRegistry,
+                                   @Value("${tes.store.enabled:false}") boolean enabled,
+                                   @Value("${tes.store.path:data/tes-responses.log}") String path,
+                                   @Value("${tes.store.max-size:256MB}") DataSize maxSize,
+                                   @Value("${tes.store.ttl:${tes.cache.ttl:PT1H}}") Duration ttl,
+                                   @Value("${tes.store.queue-size:1024}") int queueSize) {
+        this(om, meterRegistry, enabled, path, maxSize, ttl, queueSize, Clock.systemUTC());
+    }
+
+    public PersistentResponseStore(ObjectMapper om, MeterRegistry meterRegistry, boolean enabled, String path,
+                                   DataSize maxSize, Duration ttl, int queueSize, Clock clock) {
+        this.om = om;
+        this.store = enabled ? open(Path.of(path), maxSize) : null;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.hits = Counter.builder("tes.store.lookups").tag("result", "hit")
+                .description("Recommendation lookups in the persistent response store")
+                .register(meterRegistry);
+        this.misses = Counter.builder("tes.store.lookups").tag("result", "miss")
+                .register(meterRegistry);
+        this.expired = Counter.builder("tes.store.lookups").tag("result", "expired")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("tes.store.dropped")
+                .description("Responses not persisted: writer queue or store full")
+                .register(meterRegistry);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                    Thread t = new Thread(r, "response-store");
+                    t.setDaemon(true);
+                    return t;
+                }, (r, executor) -> {
+                    // после остановки приложения не считаем
+                    if (!executor.isShutdown()) dropped.increment();
+                });
+        if (store != null) {
+            Gauge.builder("tes.store.entries", store, MappedResponseLog::size).register(meterRegistry);
+            Gauge.builder("tes.store.bytes", store, MappedResponseLog::usedBytes).tag("kind", "used")
+                    .baseUnit("bytes").register(meterRegistry);
+            Gauge.builder("tes.store.bytes", store, MappedResponseLog::deadBytes).tag("kind", "dead")
+                    .baseUnit("bytes").register(meterRegistry);
+        }
+    }
+
+    private static MappedResponseLog open(Path path, DataSize maxSize) {
+        try {
+            MappedResponseLog opened = MappedResponseLog.open(path, (int) Math.min(Integer.MAX_VALUE, maxSize.toBytes()));
+            log.info("Response store {}: {} entries, {} bytes", path, opened.size(), opened.usedBytes());
+            return opened;
+        } catch (IOException | RuntimeException e) {
+            // хранилище — ускорение старта, а не источник истины: без него просто идём в ML
+            log.warn("Response store {} unavailable, running without it: {}", path, e.toString());
+            return null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /** Ответ из файла для ключа и версии датасета, записанный не раньше ttl назад, или null. */
+    public RenderedRecommendation get(RecommendationKey key, String datasetVersion) {
+        if (store == null) return null;
+        ByteBuffer value = store.get(storeKey(key, datasetVersion));
+        if (value == null || value.remaining() < STORED_AT) {
+            misses.increment();
+            return null;
+        }
+        if (isExpired(value)) {
+            expired.increment();
+            return null;
+        }
+        // одно копирование из отображения: байты живут в кэше дольше, чем отображение до компакции
+        byte[] json = new byte[value.remaining() - STORED_AT];
+        value.get(STORED_AT, json);
+        try {
+            RecommendationResponse response = om.readValue(json, RecommendationResponse.class);
+            hits.increment();
+            return new RenderedRecommendation(response, json, RenderedRecommendation.etag(json));
+        } catch (IOException e) {
+            misses.increment();
+            log.warn("Unreadable stored response for {}: {}", key, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Дописывает ответ в фоне; очередь полна — не сохраняет. Файл полон — компакция до живых ответов
+     * текущей версии; если и после неё места нет (или она упала), следующая — после паузы.
+     */
+    public void putAsync(RecommendationKey key, String datasetVersion, RenderedRecommendation rendered) {
+        if (store == null) return;
+        String storeKey = storeKey(key, datasetVersion);
+        long storedAt = clock.millis();
+        writer.execute(() -> append(storeKey, datasetVersion, storedAt, rendered.json()));
+    }
+
+    private void append(String storeKey, String datasetVersion, long storedAt, byte[] json) {
+        byte[] value = ByteBuffer.allocate(STORED_AT + json.length).putLong(storedAt).put(json).array();
+        long now = clock.millis();
+        try {
+            if (store.append(storeKey, value)) return;
+            if (now < compactNotBefore) {
+                dropped.increment();
+                return;
+            }
+            String prefix = datasetVersion + '\0';
+            long freed = store.compact((k, v) -> k.startsWith(prefix) && !isExpired(v));
+            if (store.append(storeKey, value)) {
+                compactBackoff = MIN_COMPACT_BACKOFF;
+                return;
+            }
+            dropped.increment();
+            log.warn("Response store is full ({} bytes, {} freed by compaction), not compacting for {}",
+                    store.capacity(), freed, compactBackoff);
+        } catch (IOException | RuntimeException e) {
+            dropped.increment();
+            log.warn("Response store write failed, not compacting for {}: {}", compactBackoff, e.toString());
+        }
+        compactNotBefore = now + compactBackoff.toMillis();
+        compactBackoff = compactBackoff.multipliedBy(2).compareTo(MAX_COMPACT_BACKOFF) > 0
+                ? MAX_COMPACT_BACKOFF : compactBackoff.multipliedBy(2);
+    }
+
+    /** Старше ttl; запись «из будущего» (часы переведены назад, чужой формат) тоже не доверяем. */
+    private boolean isExpired(ByteBuffer value) {
+        if (value.remaining() < STORED_AT) return true;
+        long age = clock.millis() - value.getLong(0);
+        return age < 0 || age > ttl.toMillis();
+    }
+
+    public int size() {
+        return store == null ? 0 : store.size();
+    }
+
+    static String storeKey(RecommendationKey key, String datasetVersion) {
+        return datasetVersion + '\0' + key.showId() + '\0' + key.targetSeason() + '\0'
+                + key.immersion() + '\0' + key.language();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        if (store != null) store.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.tes.api.service;
+
+import com.tes.api.dto.RecommendationRequest;
+
+import java.util.Map;
+
+/** Identity of a recommendation: requests with equal keys get equal answers. */
+public record RecommendationKey(
+        String showId,
+        int targetSeason,
+        int immersion,
+        String language
+) {
+    public static RecommendationKey of(RecommendationRequest req) {
+        return new RecommendationKey(req.showId(), req.targetSeason(), req.immersion(), req.language());
+    }
+
+    /** Тело запроса к ML-сервису. */
+    public Map<String, Object> toPayload() {
+        return Map.of(
+                "showId", showId,
+                "targetSeason", targetSeason,
+                "immersion", immersion,
+                "language", language
+        );
+    }
+}
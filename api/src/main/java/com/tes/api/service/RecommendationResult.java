@@ -0,0 +1,18 @@
+package com.tes.api.service;
+
+import com.tes.api.dto.RecommendationResponse;
+
+/**
+ * Ответ неблокирующего пути и откуда он: от ML (или движка) или, при tes.ml.strict=false,
+ * из LastKnownGoodStore, пока ML недоступен. Пакет и поток помечают такой ответ {@code stale}.
+ */
+public record RecommendationResult(RecommendationResponse response, boolean stale) {
+
+    public static RecommendationResult fresh(RecommendationResponse response) {
+        return new RecommendationResult(response, false);
+    }
+
+    public static RecommendationResult stale(RecommendationResponse response) {
+        return new RecommendationResult(response, true);
+    }
+}
@@ -1,8 +1,37 @@
 package com.tes.api.service;
 
 import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.dto.SeasonRecommendations;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface RecommendationService {
     ResponseEntity<?> recommend(RecommendationRequest request);
-}
\ No newline at end of file
+
+    /**
+     * Неблокирующий вариант: future завершается ответом или исключением,
+     * которое GlobalExceptionHandler уже умеет отображать (MlUnavailableException → TES-002,
+     * MlTimeoutException → TES-004). Ответ из запаса на время отказа ML помечен {@code stale}.
+     */
+    CompletableFuture<RecommendationResult> recommendAsync(RecommendationRequest request);
+
+    /**
+     * Потоковый вариант: по элементу на сезон, по возрастанию, с учётом запрошенного подписчиком.
+     * Отмена подписки отменяет future recommendAsync (и вызов ML, если реализация это поддерживает).
+     */
+    default Flux<SeasonRecommendations> recommendSeasons(RecommendationRequest request) {
+        return Mono.fromFuture(() -> recommendAsync(request))
+                .flatMapIterable(r -> SeasonRecommendations.of(r.response(), r.stale()));
+    }
+
+    /**
+     * ETag (от содержимого) ответа, который уже готов и отдаётся без вызова ML,
+     * или null — тогда ответ считается и сравнивается ETag от его байтов.
+     */
+    default String etag(RecommendationRequest request) {
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.tes.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.dto.RecommendationResponse;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Ответ, сериализованный один раз: горячий путь пишет {@code json} в ответ как есть,
+ * без повторного прохода Jackson по Map&lt;Integer, List&lt;MinimalEpisode&gt;&gt;.
+ *
+ * @param etag сильный ETag в кавычках, от содержимого {@code json}
+ */
+public record RenderedRecommendation(RecommendationResponse response, byte[] json, String etag) {
+
+    public static RenderedRecommendation of(RecommendationResponse response, ObjectMapper om) {
+        byte[] json;
+        try {
+            json = om.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize recommendations", e);
+        }
+        return new RenderedRecommendation(response, json, etag(json));
+    }
+
+    static String etag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return '"' + HexFormat.of().formatHex(digest, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,80 +1,370 @@
 package com.tes.api.service.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
 import com.tes.api.dto.RecommendationRequest;
 import com.tes.api.dto.RecommendationResponse;
+import com.tes.api.engine.ShowDatasetHolder;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.service.AnswerTableService;
+import com.tes.api.service.LastKnownGoodStore;
+import com.tes.api.service.PersistentResponseStore;
+import com.tes.api.service.RecommendationKey;
+import com.tes.api.service.RecommendationResult;
 import com.tes.api.service.RecommendationService;
+import com.tes.api.service.RenderedRecommendation;
 import com.tes.api.web.MlTimeoutException;
 import com.tes.api.web.MlUnavailableException;
+import com.tes.api.web.TesErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.netty.http.client.PrematureCloseException;
 
 import java.net.ConnectException;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
+@ConditionalOnProperty(name = "tes.engine", havingValue = "http", matchIfMissing = true)
 public class RecommendationServiceHttp implements RecommendationService {
 
     private final MlClient mlClient;
+    private final AnswerTableService answers;
+    private final ShowDatasetHolder datasets;
     private final ObjectMapper om;
+    private final StageTimers stages;
+    private final LastKnownGoodStore lastKnownGood;
+    private final PersistentResponseStore persisted;
+    private final boolean strict;
+    private final Counter staleServed;
+
+    /**
+     * Ответы ML по ключу запроса. Одинаковые запросы, пришедшие во время загрузки,
+     * ждут один и тот же future (один вызов ML, один слот bulkhead'а).
+     * После refresh-after запись отдаётся как есть и перезагружается в фоне (stale-while-revalidate).
+     * Значение уже сериализовано (RenderedRecommendation): попадание в кэш не трогает Jackson.
+     * Ключ включает версию датасета: загрузка, начатая до смены версии, ложится под старую версию
+     * и новой не отдаётся; старые записи уходят по ttl и размеру. Null — кэш выключен.
+     */
+    private final AsyncLoadingCache<CacheKey, RenderedRecommendation> cache;
+
+    /** Запрос и версия датасета, для которой считался ответ. */
+    private record CacheKey(RecommendationKey request, String datasetVersion) {
+    }
+
+    /**
+     * Сколько запросов ждут незавершённую загрузку (ключ — future загрузки, по ссылке).
+     * Когда последний ждущий отменяет ожидание (клиент потокового ответа ушёл), загрузка
+     * отменяется вместе с вызовом ML; пока ждёт хоть один — продолжается. К загрузке, которую
+     * уже начали отменять ({@link #CANCELLING}), новый запрос не присоединяется, а берёт новую.
+     */
+    private final Map<CompletableFuture<RenderedRecommendation>, AtomicInteger> waiting = new ConcurrentHashMap<>();
+
+    /** Счётчик ждущих после того, как последний ушедший начал отмену загрузки. */
+    private static final int CANCELLING = -1;
+
+    /** Ответ отдан из LastKnownGoodStore, а не от ML. */
+    public static final String STALE_HEADER = "X-TES-Stale";
 
     // Доп. таймаут ожидания Future (основные таймауты — в MlClient/Resilience4j)
     private static final Duration CALL_TIMEOUT = Duration.ofSeconds(4);
 
-    public RecommendationServiceHttp(MlClient mlClient, ObjectMapper om) {
+    public RecommendationServiceHttp(MlClient mlClient, AnswerTableService answers,
+                                     ShowDatasetHolder datasets, ObjectMapper om, MeterRegistry meterRegistry,
+                                     StageTimers stages, LastKnownGoodStore lastKnownGood, PersistentResponseStore persisted,
+                                     @Value("${tes.ml.strict:false}") boolean strict,
+                                     @Value("${tes.cache.enabled:true}") boolean cacheEnabled,
+                                     @Value("${tes.cache.max-size:10000}") long maxSize,
+                                     @Value("${tes.cache.ttl:PT1H}") Duration ttl,
+                                     @Value("${tes.cache.refresh-after:PT10M}") Duration refreshAfter) {
         this.mlClient = Objects.requireNonNull(mlClient, "mlClient");
-        this.om = Objects.requireNonNull(om, "objectMapper");
+        this.answers = Objects.requireNonNull(answers, "answers");
+        this.datasets = Objects.requireNonNull(datasets, "datasets");
+        this.om = Objects.requireNonNull(om, "om");
+        this.stages = Objects.requireNonNull(stages, "stages");
+        this.lastKnownGood = Objects.requireNonNull(lastKnownGood, "lastKnownGood");
+        this.persisted = Objects.requireNonNull(persisted, "persisted");
+        this.strict = strict;
+        this.staleServed = Counter.builder("tes.ml.fallback.served")
+                .description("Responses served from the last-known-good store while ML was failing")
+                .register(meterRegistry);
+        if (cacheEnabled) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .refreshAfterWrite(refreshAfter)
+                    .recordStats()
+                    .buildAsync(new AsyncCacheLoader<CacheKey, RenderedRecommendation>() {
+                        @Override
+                        public CompletableFuture<RenderedRecommendation> asyncLoad(CacheKey key, Executor executor) {
+                            return restoreOrLoad(key.request(), key.datasetVersion());
+                        }
+
+                        // фоновое обновление (refresh-after) — всегда через ML, не из файла
+                        @Override
+                        public CompletableFuture<RenderedRecommendation> asyncReload(
+                                CacheKey key, RenderedRecommendation old, Executor executor) {
+                            return load(key.request(), key.datasetVersion());
+                        }
+                    });
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "recommendations");
+        } else {
+            this.cache = null;
+        }
     }
 
     @Override
     public ResponseEntity<?> recommend(RecommendationRequest req) {
-        Map<String, Object> payload = Map.of(
-                "showId", req.showId(),
-                "targetSeason", req.targetSeason(),
-                "immersion", req.immersion(),
-                "language", req.language()
-        );
-
-        Map<String, Object> mlResponse;
+        RenderedRecommendation rendered;
         try {
-            mlResponse = mlClient.recommendAsync(payload)
-                    .get(CALL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
-        } catch (TimeoutException e) {
-            throw new MlTimeoutException("ML request timed out", e);  // → 504 TES-004
-        } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-            boolean cbOpen = (cause != null && "CallNotPermittedException".equals(cause.getClass().getSimpleName()));
-            boolean connectIssue = (cause instanceof ConnectException);
-            if (cbOpen || connectIssue) {
-                throw new MlUnavailableException("ML service unavailable", cause); // → 503 TES-002
-            }
-            throw new IllegalStateException("ML call failed: " + (cause != null ? cause.getMessage() : e.getMessage()), e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new MlTimeoutException("ML request interrupted", e); // → 504 TES-004
+            rendered = renderAsync(req).join();
+        } catch (CompletionException e) {
+            RuntimeException cause = (RuntimeException) e.getCause();
+            LastKnownGoodStore.Entry stale = fallback(RecommendationKey.of(req), cause);
+            if (stale == null) throw cause;
+            return staleResponse(stale);
         }
 
-        // Ожидаем от ML: {"recommendations": { "1": [ {id,season,episode,title,arcs}, ... ], ... } }
-        Object raw = mlResponse.get("recommendations");
-        if (!(raw instanceof Map<?, ?> rawMap)) {
-            throw new IllegalStateException("Invalid ML payload: missing 'recommendations'");
+        // готовые байты: ByteArrayHttpMessageConverter пишет их в ответ без сериализации
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(rendered.etag())
+                .body(rendered.json());
+    }
+
+    /**
+     * ETag от содержимого ответа, который уже есть в памяти (таблица ответов или готовая запись кэша),
+     * — без вызова ML и без загрузки; иначе null. Ключ запроса здесь только указывает, где искать.
+     */
+    @Override
+    public String etag(RecommendationRequest req) {
+        RecommendationKey key = RecommendationKey.of(req);
+        RenderedRecommendation precomputed = answers.lookup(key);
+        if (precomputed != null) {
+            return precomputed.etag();
         }
+        if (cache == null) {
+            return null;
+        }
+        // asMap() не считается в статистике кэша и не запускает загрузку
+        CompletableFuture<RenderedRecommendation> cached =
+                cache.asMap().get(new CacheKey(key, datasets.current().version()));
+        return cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join().etag() : null;
+    }
 
-        Map<Integer, List<RecommendationResponse.MinimalEpisode>> recs =
-                om.convertValue(rawMap, new TypeReference<>() {});
-        RecommendationResponse body = new RecommendationResponse(recs);
+    /**
+     * Отмена возвращённого future доходит до вызова ML (см. {@link #waiting}).
+     * Запасной ответ (см. {@link #fallback}) помечен stale — пакет и поток передают это клиенту.
+     */
+    @Override
+    public CompletableFuture<RecommendationResult> recommendAsync(RecommendationRequest req) {
+        RecommendationKey key = RecommendationKey.of(req);
+        CompletableFuture<RenderedRecommendation> call = renderAsync(req);
+        CompletableFuture<RecommendationResult> result = call
+                .thenApply(rendered -> RecommendationResult.fresh(rendered.response()))
+                .exceptionallyCompose(e -> {
+                    LastKnownGoodStore.Entry stale = fallback(key, e);
+                    return stale != null
+                            ? CompletableFuture.completedFuture(RecommendationResult.stale(stale.rendered().response()))
+                            : CompletableFuture.failedFuture(e);
+                });
+        // зависимые стадии CompletableFuture отмену назад не передают — передаём явно
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) call.cancel(false);
+        });
+        return result;
+    }
 
+    /**
+     * Деградация при tes.ml.strict=false: ML недоступен или не успел (503/504) — последний удачный
+     * ответ по ключу. Прочие ошибки (500) и ключи без истории — как есть.
+     */
+    private LastKnownGoodStore.Entry fallback(RecommendationKey key, Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        if (strict || !(cause instanceof MlUnavailableException || cause instanceof MlTimeoutException)) {
+            return null;
+        }
+        LastKnownGoodStore.Entry stale = lastKnownGood.get(key);
+        if (stale != null) staleServed.increment();
+        return stale;
+    }
+
+    /** 200 со старым ответом: помечен X-TES-Stale и Age, ETag от содержимого, не кэшируется по пути. */
+    private static ResponseEntity<?> staleResponse(LastKnownGoodStore.Entry stale) {
+        long age = Math.max(0, Duration.between(stale.storedAt(), Instant.now()).toSeconds());
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(body);
+                .eTag(stale.rendered().etag())
+                .cacheControl(CacheControl.noStore())
+                .header(STALE_HEADER, "true")
+                .header(HttpHeaders.AGE, String.valueOf(age))
+                .body(stale.rendered().json());
+    }
+
+    private CompletableFuture<RenderedRecommendation> renderAsync(RecommendationRequest req) {
+        RecommendationKey key = RecommendationKey.of(req);
+        String version = datasets.current().version();
+        // таблица готовых ответов (tes.answers.enabled): ML вызывается только на промах
+        RenderedRecommendation precomputed = answers.lookup(key);
+        if (precomputed != null) {
+            return CompletableFuture.completedFuture(precomputed);
+        }
+        CacheKey cacheKey = new CacheKey(key, version);
+        CompletableFuture<RenderedRecommendation> pending;
+        AtomicInteger waiters;
+        while (true) {
+            pending = cache != null ? cache.get(cacheKey) : restoreOrLoad(key, version);
+            waiters = waiting.get(pending);
+            if (waiters != null ? enter(waiters) : !pending.isCancelled()) break;
+            // загрузку уже отменяет ушедший последним: Caffeine уберёт её сам, но не обязательно до нашего get
+            if (cache != null) cache.asMap().remove(cacheKey, pending);
+        }
+        // copy(): таймаут и ошибки этого вызова не должны завершать общий future в кэше
+        CompletableFuture<RenderedRecommendation> call = pending.copy()
+                .orTimeout(CALL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(translate(e)));
+        if (waiters != null) {
+            AtomicInteger w = waiters;
+            CompletableFuture<RenderedRecommendation> loading = pending;
+            call.whenComplete((r, e) -> {
+                // 0 → -1 — только если никто не успел присоединиться: после этого новых ждущих нет
+                if (w.decrementAndGet() == 0 && call.isCancelled() && w.compareAndSet(0, CANCELLING)) {
+                    loading.cancel(false);
+                }
+            });
+        }
+        return call;
+    }
+
+    /** Ещё один ждущий загрузки; false — её уже отменяют, нужна новая. */
+    private static boolean enter(AtomicInteger waiters) {
+        int n;
+        do {
+            n = waiters.get();
+            if (n == CANCELLING) return false;
+        } while (!waiters.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    /** Промах кэша: сначала ответ, сохранённый на диске для текущей версии датасета (тёплый старт), потом ML. */
+    private CompletableFuture<RenderedRecommendation> restoreOrLoad(RecommendationKey key, String version) {
+        RenderedRecommendation stored = persisted.get(key, version);
+        if (stored != null) {
+            lastKnownGood.put(key, stored);
+            return CompletableFuture.completedFuture(stored);
+        }
+        return load(key, version);
+    }
+
+    /**
+     * Один вызов ML для ключа; ошибки остаются в future и не кэшируются.
+     * Отмена future (ушли все ждущие, см. {@link #waiting}) отменяет HTTP-вызов ML;
+     * Caffeine убирает отменённую загрузку из кэша.
+     */
+    private CompletableFuture<RenderedRecommendation> load(RecommendationKey key, String version) {
+        long start = System.nanoTime();
+        Map<String, Object> payload = key.toPayload();
+        CompletableFuture<RenderedRecommendation> loading = mlClient.recommendAsync(payload)
+                .whenComplete((ml, e) -> {
+                    // отменён, потому что ушли все клиенты, — это не исход ML
+                    if (e != null && (e instanceof CancellationException || e.getCause() instanceof CancellationException)) return;
+                    stages.record(StageTimers.Stage.ML, e == null ? null : errorCode(translate(e)), System.nanoTime() - start);
+                })
+                .thenApply(ml -> {
+                    long renderStart = System.nanoTime();
+                    RenderedRecommendation rendered = RenderedRecommendation.of(toResponse(ml), om);
+                    stages.record(StageTimers.Stage.RENDER, null, System.nanoTime() - renderStart);
+                    lastKnownGood.put(key, rendered);
+                    persisted.putAsync(key, version, rendered);
+                    return rendered;
+                });
+        if (!loading.isDone()) {
+            waiting.put(loading, new AtomicInteger());
+            loading.whenComplete((r, e) -> {
+                waiting.remove(loading);
+                if (loading.isCancelled()) mlClient.cancel(payload);
+            });
+        }
+        return loading;
+    }
+
+    /** Ошибка ML-вызова → исключение, которое понимает GlobalExceptionHandler. */
+    private static RuntimeException translate(Throwable e) {
+        Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        if (cause instanceof MlTimeoutException || cause instanceof MlUnavailableException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof TimeoutException || responseLost(cause)
+                || (cause instanceof WebClientRequestException && responseLost(cause.getCause()))) {
+            return new MlTimeoutException("ML request timed out", cause);  // → 504 TES-004
+        }
+        boolean cbOpen = "CallNotPermittedException".equals(cause.getClass().getSimpleName());
+        boolean bulkheadFull = "BulkheadFullException".equals(cause.getClass().getSimpleName());
+        // прочие WebClientRequestException — ML не достучались: отказ соединения, пул ML исчерпан
+        boolean connectIssue = (cause instanceof ConnectException) || (cause instanceof WebClientRequestException);
+        if (cbOpen || bulkheadFull || connectIssue) {
+            return new MlUnavailableException("ML service unavailable", cause); // → 503 TES-002
+        }
+        return new IllegalStateException("ML call failed: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Ответа ML не дождались: ReadTimeoutHandler пула (tes.ml.pool) или соединение закрыто до конца ответа.
+     * WebClient заворачивает их в WebClientRequestException — это 504, а не «ML недоступен».
+     */
+    private static boolean responseLost(Throwable t) {
+        return t instanceof ReadTimeoutException || t instanceof PrematureCloseException;
+    }
+
+    /** Код, с которым GlobalExceptionHandler отдаст ошибку translate(). */
+    private static TesErrorCode errorCode(RuntimeException e) {
+        if (e instanceof MlTimeoutException) return TesErrorCode.TES_004;
+        if (e instanceof MlUnavailableException) return TesErrorCode.TES_002;
+        return TesErrorCode.TES_000;
+    }
+
+    /** Типизированный ответ ML → DTO API: один проход по эпизодам, без convertValue. */
+    public static RecommendationResponse toResponse(MlRecommendation ml) {
+        if (ml == null || ml.recommendations() == null) {
+            throw new IllegalStateException("Invalid ML payload: missing 'recommendations'");
+        }
+
+        Map<Integer, List<RecommendationResponse.MinimalEpisode>> recs =
+                new LinkedHashMap<>(Math.max(16, ml.recommendations().size() * 2));
+        ml.recommendations().forEach((season, episodes) -> {
+            List<RecommendationResponse.MinimalEpisode> out = new ArrayList<>(episodes.size());
+            for (MlRecommendation.MlEpisode e : episodes) {
+                out.add(new RecommendationResponse.MinimalEpisode(e.id(), e.season(), e.episode(), e.title(), e.arcs()));
+            }
+            recs.put(season, out);
+        });
+        return new RecommendationResponse(recs);
     }
-}
\ No newline at end of file
+}
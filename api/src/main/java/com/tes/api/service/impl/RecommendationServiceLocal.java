@@ -0,0 +1,97 @@
+package com.tes.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.dto.RecommendationResponse;
+import com.tes.api.engine.CoverageEngine;
+import com.tes.api.engine.Episode;
+import com.tes.api.engine.ShowDataset;
+import com.tes.api.engine.ShowDatasetHolder;
+import com.tes.api.service.RecommendationResult;
+import com.tes.api.service.RecommendationService;
+import com.tes.api.service.RenderedRecommendation;
+import com.tes.api.web.MlUnavailableException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * tes.engine=local: минимальное покрытие считается в процессе, без HTTP-вызова ML.
+ * Результат совпадает с ml/app.py для того же датасета (см. EngineParityTest).
+ * После перечитки датасета движок пересобирается при первом запросе.
+ */
+@Service
+@ConditionalOnProperty(name = "tes.engine", havingValue = "local")
+public class RecommendationServiceLocal implements RecommendationService {
+
+    private final ShowDatasetHolder datasets;
+    private final ObjectMapper om;
+    private volatile CoverageEngine engine;
+
+    public RecommendationServiceLocal(ShowDatasetHolder datasets, ObjectMapper om) {
+        this.datasets = datasets;
+        this.om = om;
+        this.engine = new CoverageEngine(datasets.current());
+    }
+
+    @Override
+    public ResponseEntity<?> recommend(RecommendationRequest req) {
+        // ETag — от содержимого: расчёт в процессе дешевле, чем угадывать ответ по ключу
+        RenderedRecommendation rendered = RenderedRecommendation.of(compute(req), om);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(rendered.etag())
+                .body(rendered.json());
+    }
+
+    @Override
+    public CompletableFuture<RecommendationResult> recommendAsync(RecommendationRequest req) {
+        try {
+            return CompletableFuture.completedFuture(RecommendationResult.fresh(compute(req)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private RecommendationResponse compute(RecommendationRequest req) {
+        CoverageEngine engine = engine();
+        if (engine.dataset().isEmpty()) {
+            throw new MlUnavailableException("Show dataset is not loaded"); // → 503 TES-002
+        }
+        return toResponse(engine.recommend(req.showId(), req.targetSeason(), req.immersion()));
+    }
+
+    private CoverageEngine engine() {
+        ShowDataset dataset = datasets.current();
+        CoverageEngine e = engine;
+        if (e.dataset() != dataset) {
+            synchronized (this) {
+                e = engine;
+                if (e.dataset() != dataset) {
+                    e = new CoverageEngine(dataset);
+                    engine = e;
+                }
+            }
+        }
+        return e;
+    }
+
+    public static RecommendationResponse toResponse(Map<Integer, List<Episode>> bySeason) {
+        Map<Integer, List<RecommendationResponse.MinimalEpisode>> recs = new LinkedHashMap<>();
+        bySeason.forEach((season, episodes) -> {
+            List<RecommendationResponse.MinimalEpisode> out = new ArrayList<>(episodes.size());
+            for (Episode e : episodes) {
+                out.add(new RecommendationResponse.MinimalEpisode(e.id(), e.season(), e.episode(), e.title(), e.arcs()));
+            }
+            recs.put(season, out);
+        });
+        return new RecommendationResponse(recs);
+    }
+}
@@ -4,31 +4,117 @@ import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
-import org.springframework.util.StreamUtils;
 
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Запоминает первые {@code limit} байт тела по мере того, как его читает контроллер.
+ * Тело не вычитывается заранее и не копируется целиком: поток идёт к Jackson как есть,
+ * в буфер попадает только префикс для лога.
+ */
 public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
-    private final byte[] cached;
 
-    public CachedBodyHttpServletRequest(HttpServletRequest request) throws IOException {
+    private final int limit;
+    private byte[] cached;
+    private int size;
+    private long total;
+    private ServletInputStream stream;
+
+    public CachedBodyHttpServletRequest(HttpServletRequest request, int limit) {
         super(request);
-        this.cached = StreamUtils.copyToByteArray(request.getInputStream());
+        this.limit = Math.max(0, limit);
+    }
+
+    /** Прочитанный префикс тела (не больше limit байт) в кодировке запроса. */
+    public String cachedBody() {
+        if (size == 0) return "";
+        String enc = getCharacterEncoding();
+        Charset charset = enc != null ? Charset.forName(enc) : StandardCharsets.UTF_8;
+        return new String(cached, 0, size, charset);
+    }
+
+    /** Тело прочитано дальше limit байт — в cachedBody() только начало. */
+    public boolean isTruncated() {
+        return total > size;
+    }
+
+    /** Сколько байт тела прочитано на самом деле. */
+    public long bytesRead() {
+        return total;
     }
 
     @Override
-    public ServletInputStream getInputStream() {
-        final ByteArrayInputStream bais = new ByteArrayInputStream(this.cached);
-        return new ServletInputStream() {
-            @Override public int read() { return bais.read(); }
-            @Override public boolean isFinished() { return bais.available() == 0; }
-            @Override public boolean isReady() { return true; }
-            @Override public void setReadListener(ReadListener readListener) { }
-        };
+    public ServletInputStream getInputStream() throws IOException {
+        if (stream == null) {
+            stream = new Tee(super.getInputStream());
+        }
+        return stream;
     }
 
     @Override
-    public BufferedReader getReader() {
-        return new BufferedReader(new InputStreamReader(getInputStream()));
+    public BufferedReader getReader() throws IOException {
+        String enc = getCharacterEncoding();
+        Charset charset = enc != null ? Charset.forName(enc) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    private void capture(byte[] b, int off, int len) {
+        total += len;
+        int room = limit - size;
+        if (room <= 0 || len <= 0) return;
+        if (cached == null) {
+            // буфер не больше заявленной длины тела: маленький запрос — маленький массив
+            long expected = getContentLengthLong();
+            cached = new byte[(int) (expected > 0 ? Math.min(limit, expected) : limit)];
+        }
+        int n = Math.min(Math.min(room, len), cached.length - size);
+        if (n <= 0) return;
+        System.arraycopy(b, off, cached, size, n);
+        size += n;
+    }
+
+    private final class Tee extends ServletInputStream {
+        private final ServletInputStream in;
+        private final byte[] one = new byte[1];
+
+        Tee(ServletInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                one[0] = (byte) b;
+                capture(one, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) capture(b, off, n);
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return in.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return in.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            in.setReadListener(readListener);
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,9 @@ package com.tes.api.web;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.context.MessageSource;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -17,11 +20,14 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 @RestControllerAdvice
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     private final MessageSource messages;
 
     public GlobalExceptionHandler(MessageSource messages) {
@@ -56,11 +62,43 @@ public class GlobalExceptionHandler {
         );
     }
 
+    /**
+     * Строка лога с тем же correlationId, что ушёл клиенту (MDC, отдельное поле JSON).
+     * Идёт через асинхронный аппендер: WARN при переполнении очереди отбрасывается, ERROR ждёт места.
+     */
+    private static void logProblem(TesProblemResponse body, Exception ex, boolean error) {
+        MDC.put("correlationId", body.correlationId());
+        try {
+            if (error) {
+                log.error("{} {} {}", body.code(), body.instance(), ex.toString(), ex);
+            } else {
+                log.warn("{} {} {}", body.code(), body.instance(), ex.getMessage());
+            }
+        } finally {
+            MDC.remove("correlationId");
+        }
+    }
+
     private static Locale locale(HttpServletRequest req) {
         var h = req.getHeader("Accept-Language");
         return (h != null && h.toLowerCase().startsWith("ru")) ? new Locale("ru") : Locale.ENGLISH;
     }
 
+    /**
+     * Тот же ответ, что отдал бы подходящий {@code @ExceptionHandler}, — для ошибок, случившихся
+     * после того, как статус и заголовки уже отправлены (потоковая выдача кладёт тело в поток).
+     */
+    public TesProblemResponse problem(HttpServletRequest req, Throwable error) {
+        Throwable e = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        ResponseEntity<?> resp;
+        if (e instanceof MlUnavailableException u) resp = handleMlUnavailable(req, u);
+        else if (e instanceof MlTimeoutException t) resp = handleMlTimeout(req, t);
+        else if (e instanceof RateLimitExceededException r) resp = handleRateLimit(req, r);
+        else if (e instanceof IllegalArgumentException a) resp = handleBadRequest(req, a);
+        else resp = handleOther(req, e instanceof Exception x ? x : new IllegalStateException(e));
+        return (TesProblemResponse) resp.getBody();
+    }
+
     /* ---------- 400: validation / parse ---------- */
 
     @ExceptionHandler({ MethodArgumentNotValidException.class, BindException.class, ConstraintViolationException.class })
@@ -98,6 +136,7 @@ public class GlobalExceptionHandler {
         var headers = problemHeaders();
         headers.add(HttpHeaders.RETRY_AFTER, "10");
         var body = body(req, HttpStatus.SERVICE_UNAVAILABLE, TesErrorCode.TES_002, title);
+        logProblem(body, ex, false);
         return new ResponseEntity<>(body, headers, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
@@ -106,6 +145,7 @@ public class GlobalExceptionHandler {
         var loc = locale(req);
         var title = msg("error.timeout", loc);
         var body = body(req, HttpStatus.GATEWAY_TIMEOUT, TesErrorCode.TES_004, title);
+        logProblem(body, ex, false);
         return new ResponseEntity<>(body, problemHeaders(), HttpStatus.GATEWAY_TIMEOUT);
     }
 
@@ -116,6 +156,7 @@ public class GlobalExceptionHandler {
         var loc = locale(req);
         var title = msg("error.internal", loc);
         var body = body(req, HttpStatus.INTERNAL_SERVER_ERROR, TesErrorCode.TES_000, title);
+        logProblem(body, ex, true);
         return new ResponseEntity<>(body, problemHeaders(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.tes.api.web;
+
+/** Вызов ML отброшен адаптивным лимитом конкурентности до отправки: тот же 503 TES-002. */
+public class MlOverloadedException extends MlUnavailableException {
+    public MlOverloadedException(String message) { super(message); }
+}
@@ -1,37 +1,106 @@
 package com.tes.api.web;
 
+import com.tes.api.dto.BatchRecommendationRequest;
+import com.tes.api.dto.BatchRecommendationResponse;
 import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.service.BatchRecommendationService;
 import com.tes.api.service.RecommendationService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class RecommendationController {
 
     private final RecommendationService recommendationService;
+    private final BatchRecommendationService batchService;
+    private final CacheControl cacheControl;
 
-    public RecommendationController(RecommendationService recommendationService) {
+    public RecommendationController(RecommendationService recommendationService,
+                                    BatchRecommendationService batchService,
+                                    @Value("${tes.http.cache.max-age:PT5M}") Duration maxAge) {
         this.recommendationService = recommendationService;
+        this.batchService = batchService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @PostMapping(
             path = "/recommendations",
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<?> recommend(@Valid @RequestBody RecommendationRequest request) {
+    public ResponseEntity<?> recommend(@Valid @RequestBody RecommendationRequest request,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditional(request, ifNoneMatch);
+    }
+
+    /** То же, что POST, но кэшируемо CDN/браузером: /recommendations?showId=got&targetSeason=3&immersion=2. */
+    @GetMapping("/recommendations")
+    public ResponseEntity<?> recommendGet(@Valid @ModelAttribute RecommendationRequest request,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditional(request, ifNoneMatch);
+    }
+
+    private ResponseEntity<?> conditional(RecommendationRequest request, String ifNoneMatch) {
+        // ответ уже в памяти и его ETag совпал — 304 без вызова ML
+        String expected = recommendationService.etag(request);
+        if (expected != null && matches(ifNoneMatch, expected)) {
+            return notModified(expected);
+        }
+
         ResponseEntity<?> resp = recommendationService.recommend(request);
-        // Подстраховка: гарантируем application/json
-        if (!resp.getHeaders().containsKey(HttpHeaders.CONTENT_TYPE)) {
-            return ResponseEntity
-                    .status(resp.getStatusCode())
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .headers(resp.getHeaders())
-                    .body(resp.getBody());
+        String etag = resp.getHeaders().getETag();
+        if (etag != null && matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity
+                .status(resp.getStatusCode())
+                .headers(resp.getHeaders())
+                // тот же URL по Accept отдаёт и NDJSON/SSE (RecommendationStreamController)
+                .varyBy(HttpHeaders.ACCEPT)
+                // Подстраховка: гарантируем application/json
+                .contentType(MediaType.APPLICATION_JSON);
+        // свой Cache-Control сервиса (no-store у устаревшего ответа) не перекрываем
+        if (resp.getHeaders().getCacheControl() == null) {
+            builder.cacheControl(cacheControl);
+        }
+        return builder.body(resp.getBody());
+    }
+
+    private ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    /** If-None-Match: "*" или список ETag'ов через запятую; сравнение слабое (W/ игнорируется), RFC 9110 13.1.2. */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(tag)) return true;
         }
-        return resp;
+        return false;
+    }
+
+    /** 200 всегда, статус и TES-код — у каждого элемента (см. BatchRecommendationResponse). */
+    @PostMapping(
+            path = "/recommendations:batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<BatchRecommendationResponse> recommendBatch(@Valid @RequestBody BatchRecommendationRequest request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(batchService.recommend(request.items(), LocaleContextHolder.getLocale()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.tes.api.web;
+
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.service.RecommendationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * /recommendations по сезонам, по мере готовности: Accept application/x-ndjson — строка JSON
+ * на сезон, text/event-stream — событие {@code season} на сезон и {@code done} в конце.
+ * Обычный JSON (RecommendationController) выбирается, если потоковый тип не назван в Accept.
+ *
+ * <p>Статус и заголовки уходят сразу, до ответа ML, поэтому ошибка после начала ответа
+ * приходит в теле: строка {@code {"error": {...}}} или событие {@code problem} — тот же problem+json
+ * с кодом TES-xxx, что и у обычного ответа. Сезоны пишутся по одному по запросу подписчика
+ * (MVC просит следующий после записи предыдущего). Клиент ушёл — подписка отменяется,
+ * а с ней и вызов ML, если его больше никто не ждёт. SSE шлёт комментарии, пока ждёт ML:
+ * так разрыв соединения виден до ответа ML, а не после.
+ *
+ * <p>Потоки не кэшируются ({@code no-store}); {@code Vary: Accept} — чтобы кэш, сохранивший
+ * JSON-ответ того же GET, не отдал его потоковому клиенту и наоборот.
+ */
+@RestController
+public class RecommendationStreamController {
+
+    /** Строка NDJSON с ошибкой вместо сезона. */
+    public record StreamError(TesProblemResponse error) {
+    }
+
+    private final RecommendationService recommendationService;
+    private final GlobalExceptionHandler errors;
+    private final Duration heartbeat;
+
+    public RecommendationStreamController(RecommendationService recommendationService,
+                                          GlobalExceptionHandler errors,
+                                          @Value("${tes.stream.heartbeat:PT1S}") Duration heartbeat) {
+        this.recommendationService = recommendationService;
+        this.errors = errors;
+        this.heartbeat = heartbeat;
+    }
+
+    @PostMapping(path = "/recommendations",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> ndjson(@Valid @RequestBody RecommendationRequest request, HttpServletRequest http) {
+        return seasonLines(request, http);
+    }
+
+    @GetMapping(path = "/recommendations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> ndjsonGet(@Valid @ModelAttribute RecommendationRequest request, HttpServletRequest http,
+                                  HttpServletResponse response) {
+        notCacheable(response);
+        return seasonLines(request, http);
+    }
+
+    @PostMapping(path = "/recommendations",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> events(@Valid @RequestBody RecommendationRequest request, HttpServletRequest http) {
+        return seasonEvents(request, http);
+    }
+
+    /** Для EventSource в браузере: он умеет только GET. */
+    @GetMapping(path = "/recommendations", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> eventsGet(@Valid @ModelAttribute RecommendationRequest request, HttpServletRequest http,
+                                                   HttpServletResponse response) {
+        notCacheable(response);
+        return seasonEvents(request, http);
+    }
+
+    private static void notCacheable(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    private Flux<Object> seasonLines(RecommendationRequest request, HttpServletRequest http) {
+        return recommendationService.recommendSeasons(request)
+                .cast(Object.class)
+                .onErrorResume(e -> Mono.just(new StreamError(errors.problem(http, e))));
+    }
+
+    private Flux<ServerSentEvent<Object>> seasonEvents(RecommendationRequest request, HttpServletRequest http) {
+        Flux<ServerSentEvent<Object>> seasons = recommendationService.recommendSeasons(request)
+                .map(s -> ServerSentEvent.<Object>builder(s).event("season").id(String.valueOf(s.season())).build())
+                // EventSource переподключается, когда поток закрыт сервером; done — сигнал закрыть его
+                .concatWith(Mono.just(ServerSentEvent.<Object>builder("end").event("done").build()))
+                .onErrorResume(e -> Mono.just(
+                        ServerSentEvent.<Object>builder(errors.problem(http, e)).event("problem").build()));
+        // первый комментарий — сразу (заголовки и первый байт не ждут ML), дальше — раз в heartbeat до первого сезона
+        return seasons.publish(shared -> Flux.merge(
+                Flux.interval(Duration.ZERO, heartbeat)
+                        .onBackpressureDrop()
+                        .map(i -> ServerSentEvent.<Object>builder().comment("waiting").build())
+                        .takeUntilOther(shared),
+                shared));
+    }
+}
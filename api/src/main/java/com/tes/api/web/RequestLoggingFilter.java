@@ -1,33 +1,109 @@
 package com.tes.api.web;
 
+import com.tes.api.metrics.StageTimers;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.util.StreamUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Лог запросов /recommendations: одна строка после ответа, поля — в MDC (http.*), а не в тексте.
+ *
+ * <p>Решение «логировать или нет» принимается до чтения тела: не попавший в выборку запрос
+ * не оборачивается и ничего не аллоцирует. У попавшего тело не копируется отдельно —
+ * {@link CachedBodyHttpServletRequest} запоминает первые max-body байт, пока контроллер его читает.
+ * Ответы 5xx логируются всегда, но тело у них есть только если запрос попал в выборку.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
 public class RequestLoggingFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(RequestLoggingFilter.class);
+
+    static final String METHOD = "http.method";
+    static final String PATH = "http.path";
+    static final String STATUS = "http.status";
+    static final String DURATION = "http.duration_ms";
+    static final String BODY = "http.body";
+    static final String BODY_BYTES = "http.body_bytes";
+    static final String BODY_TRUNCATED = "http.body_truncated";
+
+    private final StageTimers stages;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxBody;
+
+    public RequestLoggingFilter(StageTimers stages,
+                                @Value("${tes.logging.requests.enabled:true}") boolean enabled,
+                                @Value("${tes.logging.requests.sample-rate:0.01}") double sampleRate,
+                                @Value("${tes.logging.requests.max-body:1024}") int maxBody) {
+        this.stages = stages;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxBody = Math.max(0, maxBody);
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
-        String uri = request.getRequestURI();
-        return !"/recommendations".equals(uri);
+        return !enabled || !request.getRequestURI().startsWith("/recommendations");
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        CachedBodyHttpServletRequest wrapped = new CachedBodyHttpServletRequest(request);
-        byte[] bodyBytes = StreamUtils.copyToByteArray(wrapped.getInputStream());
-        String body = new String(bodyBytes, StandardCharsets.UTF_8);
-        int max = Math.min(body.length(), 32_768);
-        logger.info("REQ " + request.getMethod() + " " + request.getRequestURI() +
-                " CT=" + request.getContentType() + " Body=" + body.substring(0, max));
-        filterChain.doFilter(wrapped, response);
+        long start = System.nanoTime();
+        boolean sampled = sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        CachedBodyHttpServletRequest wrapped = sampled && maxBody > 0
+                ? new CachedBodyHttpServletRequest(request, maxBody)
+                : null;
+        long chainStart = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(wrapped != null ? wrapped : request, response);
+            status = response.getStatus();
+        } finally {
+            long chainEnd = System.nanoTime();
+            if (sampled || status >= 500) {
+                write(request, wrapped, status, chainEnd - start);
+            }
+            stages.record(StageTimers.Stage.REQUEST_LOG, StageTimers.outcomeOf(status),
+                    (chainStart - start) + (System.nanoTime() - chainEnd));
+        }
+    }
+
+    private void write(HttpServletRequest request, CachedBodyHttpServletRequest body, int status, long nanos) {
+        if (!log.isInfoEnabled()) return;
+        MDC.put(METHOD, request.getMethod());
+        MDC.put(PATH, request.getRequestURI());
+        MDC.put(STATUS, Integer.toString(status));
+        MDC.put(DURATION, Long.toString(nanos / 1_000_000));
+        if (body != null) {
+            MDC.put(BODY, body.cachedBody());
+            MDC.put(BODY_BYTES, Long.toString(body.bytesRead()));
+            if (body.isTruncated()) MDC.put(BODY_TRUNCATED, "true");
+        }
+        try {
+            log.info("request");
+        } finally {
+            MDC.remove(METHOD);
+            MDC.remove(PATH);
+            MDC.remove(STATUS);
+            MDC.remove(DURATION);
+            MDC.remove(BODY);
+            MDC.remove(BODY_BYTES);
+            MDC.remove(BODY_TRUNCATED);
+        }
     }
-}
\ No newline at end of file
+}
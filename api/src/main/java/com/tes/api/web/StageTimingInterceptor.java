@@ -0,0 +1,40 @@
+package com.tes.api.web;
+
+import com.tes.api.metrics.StageTimers;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Этап handler: от входа в DispatcherServlet-обработчик (до разбора и валидации тела)
+ * до записи ответа, включая GlobalExceptionHandler. Исход — по итоговому статусу.
+ * Потоковый ответ (async): замер от первого входа до завершения потока, на async-диспатче.
+ */
+public class StageTimingInterceptor implements HandlerInterceptor {
+
+    private static final String START = StageTimingInterceptor.class.getName() + ".start";
+
+    private final StageTimers stages;
+
+    public StageTimingInterceptor(StageTimers stages) {
+        this.stages = stages;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async-диспатч в конце потоковой выдачи снова проходит preHandle: начало — с первого входа
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            request.setAttribute(START, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(START) instanceof Long start) {
+            int status = ex != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            stages.record(StageTimers.Stage.HANDLER, StageTimers.outcomeOf(status), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.tes.api.web.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * ratelimit.backend=bucket4j: отдельный Bucket на каждый ключ в Caffeine (до maxKeys).
+ * Точный, но при наплыве разных IP вытесняет корзины реальных клиентов и сбрасывает их лимит.
+ */
+public class Bucket4jRateLimiter implements RateLimiterBackend {
+
+    private final Cache<String, Bucket> buckets;
+    private final long capacity;
+    private final Duration refillPeriod;
+
+    public Bucket4jRateLimiter(long capacity, Duration refillPeriod, long maxKeys) {
+        this.capacity = capacity;
+        this.refillPeriod = refillPeriod;
+        this.buckets = Caffeine.newBuilder().maximumSize(maxKeys).build();
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public Probe tryConsume(String key, long tokens) {
+        Bucket bucket = buckets.asMap().computeIfAbsent(key, k -> newBucket());
+        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(tokens);
+        return new Probe(probe.isConsumed(), probe.getRemainingTokens(), probe.getNanosToWaitForRefill());
+    }
+
+    @Override
+    public void charge(String key, long tokens) {
+        buckets.asMap().computeIfAbsent(key, k -> newBucket()).consumeIgnoringRateLimits(tokens);
+    }
+
+    @Override
+    public long refund(String key, long tokens) {
+        // корзину уже вытеснили — новая и так полная
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) return capacity;
+        bucket.addTokens(tokens);
+        return bucket.getAvailableTokens();
+    }
+
+    private Bucket newBucket() {
+        Refill refill = Refill.intervally(capacity, refillPeriod);
+        Bandwidth band = Bandwidth.classic(capacity, refill);
+        return Bucket.builder().addLimit(band).build();
+    }
+}
@@ -1,18 +1,18 @@
 package com.tes.api.web.filters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tes.api.client.MlCallCounter;
+import com.tes.api.metrics.StageTimers;
 import com.tes.api.web.TesErrorCode;
-import com.tes.api.web.TesProblemResponse;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -23,26 +23,43 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Locale;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private final Cache<String, Bucket> buckets;
-    private final long capacity;
-    private final Duration refillPeriod;
-    private final ObjectMapper om = new ObjectMapper();
-
-    public RateLimitFilter(
-            @Value("${ratelimit.per-ip.capacity:60}") long capacity,
-            @Value("${ratelimit.per-ip.refill-period:PT1H}") Duration refillPeriod
-    ) {
-        this.capacity = capacity;
-        this.refillPeriod = refillPeriod;
-        this.buckets = Caffeine.newBuilder().maximumSize(10_000).build();
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String TITLE_EN = "Too many requests, please slow down";
+    private static final String TITLE_RU = "Слишком много запросов, пожалуйста, снизьте частоту";
+
+    private final RateLimitPolicy policy;
+    private final StageTimers stages;
+    private final Slot[] slots;
+    private final long logEvery;
+
+    /*
+     * Отказ под флудом — горячий путь: тело 429 заранее отрендерено на каждый язык,
+     * id — номер отказа в процессе, а не UUID, числовые заголовки кэшируются.
+     */
+    private final RejectionTemplate rejectionEn;
+    private final RejectionTemplate rejectionRu;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RateLimitFilter(RateLimitPolicy policy,
+                           MeterRegistry meterRegistry,
+                           StageTimers stages,
+                           @Value("${ratelimit.reject-log-every:1000}") long logEvery) {
+        this.policy = policy;
+        this.stages = stages;
+        this.slots = policy.tiers().stream().map(t -> new Slot(t, meterRegistry)).toArray(Slot[]::new);
+        this.logEvery = Math.max(1, logEvery);
+        ObjectMapper om = new ObjectMapper();
+        int processId = ThreadLocalRandom.current().nextInt();
+        this.rejectionEn = RejectionTemplate.render(om, TITLE_EN, processId);
+        this.rejectionRu = RejectionTemplate.render(om, TITLE_RU, processId);
     }
 
     @Override
@@ -55,61 +72,190 @@ public class RateLimitFilter extends OncePerRequestFilter {
             return;
         }
 
-        Bucket bucket = buckets.asMap().computeIfAbsent(clientKey(req), k -> newBucket());
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+        long start = System.nanoTime();
+        long cost = policy.costOf(path);
+        Slot tightest = null;
+        RateLimiterBackend.Probe tightestProbe = null;
 
-        setRateHeaders(resp, probe);
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            String key = slot.tier.keyOf(req, policy.apiKeyHeader());
+            if (key == null) continue;
+
+            RateLimiterBackend.Probe probe = slot.tier.limiter().tryConsume(key, cost);
+            slot.record(probe, cost);
+            if (!probe.consumed()) {
+                if (slot.tier.scope() == RateLimitTier.Scope.GLOBAL) {
+                    // общий уровень полон не по вине клиента — его собственным корзинам cost возвращается
+                    refund(req, resp, i, cost);
+                }
+                // отказ по своему лимиту (ip, key) стоит клиенту запроса на уже пройденных уровнях
+                setRateHeaders(resp, slot, probe);
+                reject(req, resp, path, slot);
+                long took = System.nanoTime() - start;
+                stages.record(StageTimers.Stage.RATE_LIMIT, TesErrorCode.TES_003, took);
+                if (timed(path)) stages.record(StageTimers.Stage.TOTAL, TesErrorCode.TES_003, took);
+                return;
+            }
+            resp.setHeader(slot.remainingHeader, slot.remainingText.of(Math.max(0, probe.remaining())));
+            if (tightestProbe == null || probe.remaining() < tightestProbe.remaining()) {
+                tightest = slot;
+                tightestProbe = probe;
+            }
+        }
+        if (tightest != null) {
+            setRateHeaders(resp, tightest, tightestProbe);
+        }
 
-        if (probe.isConsumed()) {
+        long chainStart = System.nanoTime();
+        TesErrorCode outcome = TesErrorCode.TES_000;
+        try {
             chain.doFilter(req, resp);
-            return;
+            outcome = StageTimers.outcomeOf(resp.getStatus());
+        } finally {
+            long chainEnd = System.nanoTime();
+            chargeMlCalls(req);
+            long end = System.nanoTime();
+            // своё время фильтра — до и после цепочки; total — весь запрос, только для /recommendations*
+            stages.record(StageTimers.Stage.RATE_LIMIT, outcome, (chainStart - start) + (end - chainEnd));
+            if (timed(path)) stages.record(StageTimers.Stage.TOTAL, outcome, end - start);
+        }
+    }
+
+    private static boolean timed(String path) {
+        return path.startsWith("/recommendations");
+    }
+
+    /**
+     * Доплата за вызовы ML: ответ уже отдан, поэтому списание без проверки (корзина может уйти в минус),
+     * и следующий запрос клиента увидит долг в X-RateLimit-Remaining. Ключи уровней выводятся
+     * заново — только здесь и при возврате, чтобы не держать массив на каждый запрос.
+     */
+    private void chargeMlCalls(HttpServletRequest req) {
+        int calls = MlCallCounter.count(req);
+        if (calls == 0 || policy.mlCallCost() == 0) return;
+        long tokens = calls * policy.mlCallCost();
+        for (Slot slot : slots) {
+            String key = slot.tier.keyOf(req, policy.apiKeyHeader());
+            if (key == null) continue;
+            slot.tier.limiter().charge(key, tokens);
+            slot.mlTokens.increment(tokens);
+        }
+    }
+
+    /** Возврат cost уровням до {@code upTo}, которые его уже списали; их X-RateLimit-Remaining-* — после возврата. */
+    private void refund(HttpServletRequest req, HttpServletResponse resp, int upTo, long cost) {
+        for (int i = 0; i < upTo; i++) {
+            Slot slot = slots[i];
+            String key = slot.tier.keyOf(req, policy.apiKeyHeader());
+            if (key == null) continue;
+            long left = slot.tier.limiter().refund(key, cost);
+            slot.refundedTokens.increment(cost);
+            resp.setHeader(slot.remainingHeader, slot.remainingText.of(Math.max(0, left)));
         }
+    }
 
-        // Лимит превышен — 429 + Problem+JSON
+    private void reject(HttpServletRequest req, HttpServletResponse resp, String path, Slot slot)
+            throws IOException {
+        // Лимит превышен — 429 + Problem+JSON из готового шаблона
+        long seq = rejected.incrementAndGet();
+        RejectionTemplate body = isRu(req) ? rejectionRu : rejectionEn;
         resp.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
         resp.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        resp.setContentLength(body.length(path));
+        body.write(resp.getOutputStream(), path, seq);
 
-        String title = localizedTitle(req);
-        TesProblemResponse body = new TesProblemResponse(
-                "https://tes.dev/errors/" + TesErrorCode.TES_003.code.toLowerCase(),
-                title,
-                HttpStatus.TOO_MANY_REQUESTS.value(),
-                title,
-                req.getRequestURI(),
-                TesErrorCode.TES_003.code,
-                UUID.randomUUID().toString()
-        );
-        om.writeValue(resp.getOutputStream(), body);
+        // лог не на каждый отказ: под атакой их миллионы
+        if (seq % logEvery == 1 || logEvery == 1) {
+            log.warn("Rate limit: {} requests rejected so far (logging 1 of {}), latest tier={} client={} path={}",
+                    seq, logEvery, slot.tier.name(), RateLimitTier.clientIp(req), path);
+        }
     }
 
-    private Bucket newBucket() {
-        Refill refill = Refill.intervally(capacity, refillPeriod);
-        Bandwidth band = Bandwidth.classic(capacity, refill);
-        return Bucket.builder().addLimit(band).build();
+    /** Сколько запросов отклонено с момента старта. */
+    public long rejectedCount() {
+        return rejected.get();
     }
 
-    private static String clientKey(HttpServletRequest req) {
-        String fwd = req.getHeader("X-Forwarded-For");
-        if (fwd != null && !fwd.isBlank()) return fwd.split(",")[0].trim();
-        return req.getRemoteAddr();
+    /** Limit/Remaining/Reset — по самому «тесному» уровню (или отказавшему), его имя — в X-RateLimit-Tier. */
+    private static void setRateHeaders(HttpServletResponse resp, Slot slot, RateLimiterBackend.Probe probe) {
+        resp.setHeader("X-RateLimit-Limit", slot.limitText);
+        resp.setHeader("X-RateLimit-Remaining", slot.remainingText.of(Math.max(0, probe.remaining())));
+        long resetSec = probe.nanosToReset() > 0 ? probe.nanosToReset() / 1_000_000_000L : 0L;
+        resp.setHeader("X-RateLimit-Reset", slot.resetText.of(resetSec));
+        resp.setHeader("X-RateLimit-Tier", slot.tier.name());
     }
 
-    private void setRateHeaders(HttpServletResponse resp, ConsumptionProbe probe) {
-        resp.setHeader("X-RateLimit-Limit", String.valueOf(this.capacity));
-        resp.setHeader("X-RateLimit-Remaining", String.valueOf(Math.max(0, probe.getRemainingTokens())));
-        long resetSec = probe.getNanosToWaitForRefill() > 0 ? probe.getNanosToWaitForRefill() / 1_000_000_000L : 0L;
-        resp.setHeader("X-RateLimit-Reset", String.valueOf(resetSec));
-    }
+    /** Уровень с его метриками и кэшем строк заголовков. */
+    private static final class Slot {
+        final RateLimitTier tier;
+        final String limitText;
+        final String remainingHeader;
+        final NumberText remainingText = new NumberText();
+        final NumberText resetText = new NumberText();
+        final Counter allowed;
+        final Counter rejected;
+        final Counter requestTokens;
+        final Counter mlTokens;
+        final Counter refundedTokens;
+        final DistributionSummary remaining;
+
+        Slot(RateLimitTier tier, MeterRegistry registry) {
+            this.tier = tier;
+            this.limitText = String.valueOf(tier.limiter().capacity());
+            this.remainingHeader = "X-RateLimit-Remaining-" + Character.toUpperCase(tier.name().charAt(0))
+                    + tier.name().substring(1);
+            this.allowed = Counter.builder("tes.ratelimit.requests")
+                    .tag("tier", tier.name()).tag("outcome", "allowed").register(registry);
+            this.rejected = Counter.builder("tes.ratelimit.requests")
+                    .tag("tier", tier.name()).tag("outcome", "rejected").register(registry);
+            this.requestTokens = Counter.builder("tes.ratelimit.tokens")
+                    .description("Tokens charged (per-route cost, ML surcharge) and refunded")
+                    .tag("tier", tier.name()).tag("kind", "request").register(registry);
+            this.mlTokens = Counter.builder("tes.ratelimit.tokens")
+                    .description("Tokens charged (per-route cost, ML surcharge) and refunded")
+                    .tag("tier", tier.name()).tag("kind", "ml").register(registry);
+            this.refundedTokens = Counter.builder("tes.ratelimit.tokens")
+                    .description("Tokens charged (per-route cost, ML surcharge) and refunded")
+                    .tag("tier", tier.name()).tag("kind", "refund").register(registry);
+            this.remaining = DistributionSummary.builder("tes.ratelimit.remaining")
+                    .description("Tokens left in the bucket after each admission check")
+                    .tag("tier", tier.name()).register(registry);
+        }
 
-    private String localizedTitle(HttpServletRequest req) {
-        Locale loc = locale(req);
-        return loc.getLanguage().startsWith("ru")
-                ? "Слишком много запросов, пожалуйста, снизьте частоту"
-                : "Too many requests, please slow down";
+        void record(RateLimiterBackend.Probe probe, long cost) {
+            remaining.record(Math.max(0, probe.remaining()));
+            if (probe.consumed()) {
+                allowed.increment();
+                requestTokens.increment(cost);
+            } else {
+                rejected.increment();
+            }
+        }
     }
 
-    private static Locale locale(HttpServletRequest req) {
+    private static boolean isRu(HttpServletRequest req) {
         String h = req.getHeader(HttpHeaders.ACCEPT_LANGUAGE);
-        return (h != null && h.toLowerCase().startsWith("ru")) ? new Locale("ru") : Locale.ENGLISH;
+        return h != null && h.regionMatches(true, 0, "ru", 0, 2);
+    }
+
+    /**
+     * Строка последнего числа: подряд идущие отказы дают одни и те же Remaining=0 и Reset,
+     * который меняется раз в секунду, — строка создаётся только при смене значения.
+     */
+    static final class NumberText {
+        private record Entry(long value, String text) {
+        }
+
+        private volatile Entry last = new Entry(0, "0");
+
+        String of(long value) {
+            Entry e = last;
+            if (e.value() != value) {
+                e = new Entry(value, String.valueOf(value));
+                last = e;
+            }
+            return e.text();
+        }
     }
-}
\ No newline at end of file
+}
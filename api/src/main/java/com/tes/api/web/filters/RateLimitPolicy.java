@@ -0,0 +1,48 @@
+package com.tes.api.web.filters;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Что и сколько списывает RateLimitFilter.
+ *
+ * <p>Уровни проверяются по порядку списка (от частного к общему): клиент, упёршийся в свой лимит,
+ * не тратит общую глобальную корзину. Запрос стоит {@code routeCosts[path]} токенов
+ * (или {@code defaultCost}); после ответа каждый уровень дополнительно платит
+ * {@code mlCallCost} за каждый вызов ML, который запрос реально сделал — попадания в кэш бесплатны.
+ */
+public record RateLimitPolicy(List<RateLimitTier> tiers,
+                              Map<String, Long> routeCosts,
+                              long defaultCost,
+                              long mlCallCost,
+                              String apiKeyHeader) {
+
+    public RateLimitPolicy {
+        tiers = List.copyOf(tiers);
+        routeCosts = Map.copyOf(routeCosts);
+    }
+
+    public long costOf(String path) {
+        Long cost = routeCosts.get(path);
+        return cost != null ? cost : defaultCost;
+    }
+
+    /** "path=cost,path=cost" → {path: cost}; пустая строка — без исключений из defaultCost. */
+    public static Map<String, Long> parseRouteCosts(String spec) {
+        Map<String, Long> costs = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) return costs;
+        for (String entry : spec.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("ratelimit.costs.routes: expected path=cost, got '" + entry + "'");
+            }
+            long cost = Long.parseLong(entry.substring(eq + 1).trim());
+            if (cost < 0) {
+                throw new IllegalArgumentException("ratelimit.costs.routes: negative cost for " + entry);
+            }
+            costs.put(entry.substring(0, eq).trim(), cost);
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,42 @@
+package com.tes.api.web.filters;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Уровень лимита: своя корзина (RateLimiterBackend) и своё правило, чей это запрос.
+ * {@code name} попадает в заголовок X-RateLimit-Remaining-&lt;Name&gt; и в тег tier метрик.
+ */
+public record RateLimitTier(String name, Scope scope, RateLimiterBackend limiter) {
+
+    public enum Scope {
+        /** Одна корзина на весь инстанс: суммарная нагрузка на ML. */
+        GLOBAL,
+        /** Корзина на API-ключ; запросы без ключа этот уровень не считает. */
+        API_KEY,
+        /** Корзина на IP клиента (X-Forwarded-For или remote address). */
+        IP
+    }
+
+    static final String GLOBAL_KEY = "*";
+
+    /** Ключ корзины или null, если уровень к запросу не применяется. */
+    String keyOf(HttpServletRequest req, String apiKeyHeader) {
+        return switch (scope) {
+            case GLOBAL -> GLOBAL_KEY;
+            case API_KEY -> {
+                String key = req.getHeader(apiKeyHeader);
+                yield (key == null || key.isBlank()) ? null : key;
+            }
+            case IP -> clientIp(req);
+        };
+    }
+
+    static String clientIp(HttpServletRequest req) {
+        String fwd = req.getHeader("X-Forwarded-For");
+        if (fwd != null && !fwd.isBlank()) {
+            int comma = fwd.indexOf(',');
+            return (comma < 0 ? fwd : fwd.substring(0, comma)).trim();
+        }
+        return req.getRemoteAddr();
+    }
+}
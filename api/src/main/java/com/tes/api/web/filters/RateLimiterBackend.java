@@ -0,0 +1,31 @@
+package com.tes.api.web.filters;
+
+/**
+ * Хранилище лимитов для RateLimitFilter: сколько токенов осталось у ключа (IP) в текущем окне.
+ */
+public interface RateLimiterBackend {
+
+    /** Ёмкость корзины: X-RateLimit-Limit. */
+    long capacity();
+
+    /** Списывает {@code tokens}, если их хватает; иначе ничего не меняет. */
+    Probe tryConsume(String key, long tokens);
+
+    /** Списывает без проверки (доплата за уже обслуженный запрос): остаток может уйти в минус. */
+    void charge(String key, long tokens);
+
+    /**
+     * Возвращает токены, списанные {@link #tryConsume}, когда запрос отклонил следующий уровень;
+     * остаток не поднимается выше ёмкости.
+     *
+     * @return сколько токенов осталось после возврата
+     */
+    long refund(String key, long tokens);
+
+    /**
+     * @param remaining    сколько токенов осталось после попытки
+     * @param nanosToReset через сколько наносекунд корзина снова наполнится (0 — уже можно)
+     */
+    record Probe(boolean consumed, long remaining, long nanosToReset) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.tes.api.web.filters;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.web.TesErrorCode;
+import com.tes.api.web.TesProblemResponse;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Тело 429 (TES-003), отрендеренное Jackson'ом один раз на язык и разрезанное по двум переменным полям:
+ * {@code instance} (путь запроса) и {@code correlationId}. На запрос остаётся записать три готовых куска,
+ * путь с JSON-экранированием и id — без объектов и без ObjectMapper.
+ */
+final class RejectionTemplate {
+
+    private static final String INSTANCE_MARK = "\u0001instance\u0001";
+    private static final String ID_MARK = "\u0001id\u0001";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** Длина id: 8 hex процесса, '-', 16 hex номера. */
+    static final int ID_LENGTH = 25;
+
+    private final byte[] head;
+    private final byte[] middle;
+    private final byte[] tail;
+    private final byte[] idPrefix;
+
+    private RejectionTemplate(byte[] head, byte[] middle, byte[] tail, byte[] idPrefix) {
+        this.head = head;
+        this.middle = middle;
+        this.tail = tail;
+        this.idPrefix = idPrefix;
+    }
+
+    static RejectionTemplate render(ObjectMapper om, String title, int processId) {
+        TesProblemResponse marked = new TesProblemResponse(
+                "https://tes.dev/errors/" + TesErrorCode.TES_003.code.toLowerCase(),
+                title,
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                title,
+                INSTANCE_MARK,
+                TesErrorCode.TES_003.code,
+                ID_MARK
+        );
+        byte[] json;
+        try {
+            json = om.writeValueAsBytes(marked);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        // маркеры Jackson экранирует (\u0001), ищем их уже в сериализованном виде
+        byte[] instance = om.valueToTree(INSTANCE_MARK).toString().getBytes(StandardCharsets.UTF_8);
+        byte[] id = om.valueToTree(ID_MARK).toString().getBytes(StandardCharsets.UTF_8);
+        int i = indexOf(json, instance);
+        int j = indexOf(json, id);
+        if (i < 0 || j < i) {
+            throw new IllegalStateException("Unexpected problem layout: " + new String(json, StandardCharsets.UTF_8));
+        }
+        // кавычки полей остаются в шаблоне, маркер без кавычек заменяется значением
+        byte[] prefix = new byte[9];
+        writeHex(prefix, 0, processId, 8);
+        prefix[8] = '-';
+        return new RejectionTemplate(
+                Arrays.copyOfRange(json, 0, i + 1),
+                Arrays.copyOfRange(json, i + instance.length - 1, j + 1),
+                Arrays.copyOfRange(json, j + id.length - 1, json.length),
+                prefix);
+    }
+
+    /** Точная длина тела для Content-Length. */
+    int length(String path) {
+        return head.length + escapedLength(path) + middle.length + ID_LENGTH + tail.length;
+    }
+
+    void write(OutputStream out, String path, long seq) throws IOException {
+        out.write(head);
+        writeEscaped(out, path);
+        out.write(middle);
+        out.write(idPrefix);
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.write(HEX[(int) (seq >>> shift) & 0xF]);
+        }
+        out.write(tail);
+    }
+
+    private static int escapedLength(String s) {
+        int n = 0;
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            n += (c == '"' || c == '\\') ? 2 : (c < 0x20 || c > 0x7E) ? 6 : 1;
+        }
+        return n;
+    }
+
+    /** URI из getRequestURI не декодирован и почти всегда ASCII; остальное — \\uXXXX. */
+    private static void writeEscaped(OutputStream out, String s) throws IOException {
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                out.write('\\');
+                out.write('u');
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    out.write(HEX[(c >>> shift) & 0xF]);
+                }
+            } else {
+                out.write(c);
+            }
+        }
+    }
+
+    private static void writeHex(byte[] dst, int offset, long value, int digits) {
+        for (int d = 0; d < digits; d++) {
+            dst[offset + d] = HEX[(int) (value >>> ((digits - 1 - d) * 4)) & 0xF];
+        }
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int k = 0; k < needle.length; k++) {
+                if (haystack[i + k] != needle[k]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,188 @@
+package com.tes.api.web.filters;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * ratelimit.backend=sketch: фиксированные окна в count-min sketch из {@code depth} строк по {@code width} ячеек.
+ *
+ * <p>Ячейка — один long: старшие 40 бит — номер окна, младшие 24 — израсходованные токены.
+ * Обновление — CAS по ячейке, без блокировок и без объектов на ключ; память
+ * {@code width × depth × 8} байт при любом числе IP. Расход ключа — минимум по его ячейкам
+ * (коллизии только завышают), списание — conservative update: ячейки поднимаются до min + tokens;
+ * решение принимает CAS минимальной ячейки, поэтому параллельные запросы одного ключа не превышают лимит.
+ * Проигравший CAS может оставить соседние ячейки завышенными — это та же погрешность, что и от коллизий.
+ * Точность задают width (меньше коллизий) и depth (коллизия должна случиться во всех строках).
+ */
+public class StripedRateLimiter implements RateLimiterBackend {
+
+    static final int USED_BITS = 24;
+    static final long USED_MASK = (1L << USED_BITS) - 1;
+    public static final long MAX_CAPACITY = USED_MASK;
+
+    private final AtomicLongArray cells;
+    private final int widthMask;
+    private final int depth;
+    private final long capacity;
+    private final long periodNanos;
+    private final LongSupplier nanoTime;
+    private final long origin;
+
+    public StripedRateLimiter(long capacity, Duration period, int width, int depth) {
+        this(capacity, period, width, depth, System::nanoTime);
+    }
+
+    StripedRateLimiter(long capacity, Duration period, int width, int depth, LongSupplier nanoTime) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be in 1.." + MAX_CAPACITY + ": " + capacity);
+        }
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        if (width > (1 << 30)) {
+            throw new IllegalArgumentException("width is too large: " + width);
+        }
+        int w = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1; // вверх до степени двойки
+        this.cells = new AtomicLongArray(w * depth);
+        this.widthMask = w - 1;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.periodNanos = period.toNanos();
+        this.nanoTime = nanoTime;
+        this.origin = nanoTime.getAsLong();
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    /** Ячеек в одной строке (степень двойки). */
+    public int width() {
+        return widthMask + 1;
+    }
+
+    @Override
+    public Probe tryConsume(String key, long tokens) {
+        long elapsed = nanoTime.getAsLong() - origin;
+        long window = elapsed / periodNanos;
+        long nanosToReset = periodNanos - (elapsed % periodNanos);
+
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+
+        while (true) {
+            // оценка расхода ключа — минимальная ячейка
+            int minIndex = -1;
+            long minCell = 0L;
+            long used = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                int i = index(row, h1, h2);
+                long cell = cells.get(i);
+                long u = usedIn(cell, window);
+                if (u < used) {
+                    used = u;
+                    minIndex = i;
+                    minCell = cell;
+                }
+            }
+            if (used + tokens > capacity) {
+                return new Probe(false, capacity - used, nanosToReset);
+            }
+
+            long target = used + tokens;
+            // сначала остальные ячейки (только вверх), потом решающий CAS минимальной:
+            // в момент CAS все ячейки ключа уже ≥ target, и оценка не может «откатиться» к отстающей
+            for (int row = 0; row < depth; row++) {
+                int i = index(row, h1, h2);
+                if (i != minIndex) raise(i, window, target);
+            }
+            if (cells.compareAndSet(minIndex, minCell, (window << USED_BITS) | target)) {
+                return new Probe(true, capacity - target, nanosToReset);
+            }
+            // параллельное списание того же ключа (или коллизия) — перечитать
+        }
+    }
+
+    @Override
+    public void charge(String key, long tokens) {
+        long window = (nanoTime.getAsLong() - origin) / periodNanos;
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long used = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            used = Math.min(used, usedIn(cells.get(index(row, h1, h2)), window));
+        }
+        long target = Math.min(USED_MASK, used + tokens);
+        for (int row = 0; row < depth; row++) {
+            raise(index(row, h1, h2), window, target);
+        }
+    }
+
+    /**
+     * Опускает на {@code tokens} только ячейки, стоящие ровно на оценке ключа: выше — расход соседей
+     * по коллизии, их не трогаем. Занизить соседа можно, лишь если его расход в той же ячейке
+     * равен оценке ключа, и не больше чем на tokens; гонка с новым списанием оставляет возврат несделанным.
+     */
+    @Override
+    public long refund(String key, long tokens) {
+        long window = (nanoTime.getAsLong() - origin) / periodNanos;
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long used = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            used = Math.min(used, usedIn(cells.get(index(row, h1, h2)), window));
+        }
+        if (used == 0) return capacity;
+        long target = Math.max(0, used - tokens);
+        for (int row = 0; row < depth; row++) {
+            lower(index(row, h1, h2), window, used, target);
+        }
+        return capacity - target;
+    }
+
+    /** Опускает ячейку с {@code from} до target; ячейку с другим расходом или из другого окна не трогает. */
+    private void lower(int i, long window, long from, long target) {
+        while (true) {
+            long cell = cells.get(i);
+            if (usedIn(cell, window) != from) return;
+            if (cells.compareAndSet(i, cell, (window << USED_BITS) | target)) return;
+        }
+    }
+
+    /** Поднимает расход ячейки до target (меньше не делает), начиная новое окно при необходимости. */
+    private void raise(int i, long window, long target) {
+        while (true) {
+            long cell = cells.get(i);
+            long current = usedIn(cell, window);
+            if (current >= target) return;
+            if (cells.compareAndSet(i, cell, (window << USED_BITS) | target)) return;
+        }
+    }
+
+    private static long usedIn(long cell, long window) {
+        return (cell >>> USED_BITS) == window ? (cell & USED_MASK) : 0L;
+    }
+
+    private int index(int row, int h1, int h2) {
+        // двойное хеширование: своя ячейка в каждой строке
+        return row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+    }
+
+    /** FNV-1a по символам + финальное перемешивание; без аллокаций. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,81 @@
+package com.tes.api.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private long now;
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+            4, 2, 8, Duration.ofMillis(100), 0.5, () -> now);
+
+    @Test
+    void shedsOverLimitWithoutQueueing() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(4);
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, limiter.rejectedCount());
+
+        permits.get(0).release(AdaptiveConcurrencyLimiter.Outcome.IGNORE);
+        assertNotNull(limiter.tryAcquire());
+        assertEquals(4, limiter.inFlight());
+    }
+
+    @Test
+    void growsOnFastCallsAndBacksOffOnSlowOnes() {
+        for (int round = 0; round < 10; round++) {
+            acquire(limiter.limit()).forEach(p -> p.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS));
+        }
+        assertEquals(8, limiter.limit(), "fast answers under full load raise the limit up to max");
+
+        // медленнее порога — спад; вторая медленная волна в пределах порога ничего не меняет
+        List<AdaptiveConcurrencyLimiter.Permit> slow = acquire(2);
+        now += Duration.ofMillis(150).toNanos();
+        slow.get(0).release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(4, limiter.limit());
+        slow.get(1).release(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(4, limiter.limit());
+
+        for (int i = 0; i < 3; i++) {
+            now += Duration.ofMillis(150).toNanos();
+            limiter.tryAcquire().release(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        }
+        assertEquals(2, limiter.limit(), "never below min-limit");
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() {
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire().release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void exportsLimitAndChanges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+        now += Duration.ofMillis(150).toNanos();
+        limiter.tryAcquire().release(AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+
+        assertEquals(2.0, registry.get("tes.ml.concurrency.limit").gauge().value());
+        assertEquals(1.0, registry.get("tes.ml.concurrency.changes").tag("direction", "decrease")
+                .functionCounter().count());
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquire(int n) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            AdaptiveConcurrencyLimiter.Permit p = limiter.tryAcquire();
+            assertNotNull(p);
+            permits.add(p);
+        }
+        return permits;
+    }
+}
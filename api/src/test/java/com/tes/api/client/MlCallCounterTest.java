@@ -0,0 +1,48 @@
+package com.tes.api.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MlCallCounterTest {
+
+    @Test
+    void countsCallsRecordedFromFanOutThreads() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        ServletRequestAttributes attrs = new ServletRequestAttributes(request);
+        int threads = 8;
+        int callsPerThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(CompletableFuture.runAsync(() -> MlCallCounter.callWith(attrs, () -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    // первые вызовы всех потоков — одновременно: атрибут ещё не создан
+                    for (int i = 0; i < callsPerThread; i++) MlCallCounter.record();
+                    return null;
+                }), pool));
+            }
+            start.countDown();
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(threads * callsPerThread, MlCallCounter.count(request));
+    }
+}
@@ -0,0 +1,153 @@
+package com.tes.api.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** MlClient против локальных заглушек ML (com.sun.net.httpserver), без Spring-контекста. */
+class MlClientTest {
+
+    private static final String BODY = """
+            {"recommendations":{"1":[{"id":"S1E1","season":1,"episode":1,"title":"Winter Is Coming","arcs":["Stark Family"]}]}}""";
+
+    private static final Map<String, Object> PAYLOAD =
+            Map.of("showId", "got", "targetSeason", 2, "immersion", 3, "language", "en");
+
+    private final List<Stub> stubs = new ArrayList<>();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    /** Заглушки с {@code held} отвечают только после этого (или при остановке теста). */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void stopStubs() {
+        release.countDown();
+        stubs.forEach(s -> s.server.stop(0));
+    }
+
+    @Test
+    void hedgesSlowReplicaToAnotherOne() {
+        Stub slow = stub(200, true);
+        Stub fast = stub(200, false);
+        MlClient client = client(true, Duration.ofMillis(100), slow, fast);
+        // вторая реплика будто занята: основная попытка — на медленную, хедж — на свободную
+        client.endpoints().get(1).outstanding().incrementAndGet();
+
+        // медленная не ответит до конца теста: ответ может прийти только от хеджа
+        MlRecommendation ml = client.recommendAsync(PAYLOAD).join();
+
+        assertEquals("S1E1", ml.recommendations().get(1).get(0).id());
+        assertEquals(1, fast.calls.get());
+        assertEquals(1.0, meters.get("tes.ml.hedges").tag("result", "sent").counter().count());
+        assertEquals(1.0, meters.get("tes.ml.hedges").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void doesNotHedgeRequestThePrimaryRejected() {
+        Stub rejecting = stub(400, false);
+        Stub other = stub(200, false);
+        // таймер хеджа за пределами теста: если бы он не снимался, join ждал бы его и получил 200 от хеджа
+        MlClient client = client(true, Duration.ofSeconds(30), rejecting, other);
+        client.endpoints().get(1).outstanding().incrementAndGet();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> client.recommendAsync(PAYLOAD).join());
+
+        assertInstanceOf(WebClientResponseException.BadRequest.class, e.getCause());
+        assertEquals(0, other.calls.get());
+        assertEquals(0.0, meters.get("tes.ml.hedges").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void balancesAcrossReplicasAndSkipsOpenBreaker() {
+        Stub broken = stub(500, false);
+        Stub healthy = stub(200, false);
+        MlClient client = client(false, Duration.ofMillis(100), broken, healthy);
+
+        for (int i = 0; i < 40; i++) {
+            try {
+                client.recommendAsync(PAYLOAD).join();
+            } catch (RuntimeException expected) {
+                // вызовы на сломанную реплику, пока её breaker не открылся
+            }
+        }
+        assertTrue(broken.calls.get() > 0 && healthy.calls.get() > 0, "both replicas get traffic");
+        assertEquals(CircuitBreaker.State.OPEN, client.endpoints().get(0).circuitBreaker().getState());
+
+        int brokenCalls = broken.calls.get();
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(client.recommendAsync(PAYLOAD).join());
+        }
+        assertEquals(brokenCalls, broken.calls.get(), "open replica receives nothing");
+    }
+
+    private MlClient client(boolean hedging, Duration hedgeDelay, Stub... replicas) {
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.ofDefaults();
+        breakers.circuitBreaker("ml", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        List<String> urls = new ArrayList<>();
+        for (Stub s : replicas) urls.add("http://127.0.0.1:" + s.server.getAddress().getPort());
+        return new MlClient(
+                new AdaptiveConcurrencyLimiter(16, 2, 64, Duration.ofSeconds(1), 0.9),
+                breakers, meters, HttpClient.create(), "http://unused", urls,
+                hedging, 0.95, hedgeDelay, Duration.ofMillis(20), "cbor");
+    }
+
+    private Stub stub(int status, boolean held) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            Stub stub = new Stub(server, new AtomicInteger());
+            server.createContext("/recommendations", exchange -> {
+                stub.calls.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    if (held) release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                try (OutputStream out = exchange.getResponseBody()) {
+                    exchange.sendResponseHeaders(status, body.length);
+                    out.write(body);
+                } catch (IOException ignored) {
+                    // клиент отменил проигравший хедж
+                }
+            });
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            stubs.add(stub);
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Stub(HttpServer server, AtomicInteger calls) {
+    }
+}
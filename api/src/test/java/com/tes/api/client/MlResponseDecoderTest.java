@@ -0,0 +1,70 @@
+package com.tes.api.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MlResponseDecoderTest {
+
+    @Test
+    void decodesCborArrivingInSmallChunks() throws Exception {
+        MlRecommendation ml = catalog(3, 4);
+        byte[] bytes = new CBORMapper().writeValueAsBytes(ml);
+
+        MlRecommendation decoded = MlResponseDecoder.decode(chunks(bytes, 7),
+                new CBORMapper().readerFor(MlRecommendation.class)).block();
+
+        assertEquals(ml, decoded);
+    }
+
+    @Test
+    void streamsJsonLargerThanTheCodecBuffer() throws Exception {
+        MlRecommendation ml = catalog(40, 400);
+        byte[] bytes = new ObjectMapper().writeValueAsBytes(ml);
+        assertTrue(bytes.length > 256 * 1024, "larger than the old maxInMemorySize");
+
+        MlRecommendation decoded = MlResponseDecoder.decode(chunks(bytes, 8192),
+                new ObjectMapper().readerFor(MlRecommendation.class)).block();
+
+        assertEquals(ml, decoded);
+    }
+
+    @Test
+    void cborIsSmallerThanJson() throws Exception {
+        MlRecommendation ml = catalog(8, 6);
+        assertTrue(new CBORMapper().writeValueAsBytes(ml).length < new ObjectMapper().writeValueAsBytes(ml).length);
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes, int size) {
+        List<DataBuffer> out = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            byte[] part = Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + size));
+            out.add(DefaultDataBufferFactory.sharedInstance.wrap(part));
+        }
+        return Flux.fromIterable(out);
+    }
+
+    static MlRecommendation catalog(int seasons, int perSeason) {
+        Map<Integer, List<MlRecommendation.MlEpisode>> recs = new LinkedHashMap<>();
+        for (int s = 1; s <= seasons; s++) {
+            List<MlRecommendation.MlEpisode> eps = new ArrayList<>(perSeason);
+            for (int e = 1; e <= perSeason; e++) {
+                eps.add(new MlRecommendation.MlEpisode("S" + s + "E" + e, s, e, "Episode title " + s + "x" + e,
+                        List.of("Stark Family", "War of the Five Kings")));
+            }
+            recs.put(s, eps);
+        }
+        return new MlRecommendation(recs);
+    }
+}
@@ -0,0 +1,98 @@
+package com.tes.api.contract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+// без кэша: считаем реальные вызовы ML
+@TestPropertySource(properties = "tes.cache.enabled=false")
+class RecommendationBatchContractTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper om;
+
+    @MockBean
+    MlClient mlClient;
+
+    @Test
+    void shouldReturnPerItemResultsAndDeduplicate() throws Exception {
+        MlRecommendation success = new MlRecommendation(Map.of(
+                1,
+                List.of(new MlRecommendation.MlEpisode("S1E1", 1, 1, "Starter", List.of("test")))
+        ));
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(success));
+
+        var item = Map.of("showId", "got", "targetSeason", 2, "immersion", 3, "language", "en");
+        var invalid = Map.of("showId", "got", "targetSeason", 2, "immersion", 9, "language", "en");
+        var payload = Map.of("items", List.of(item, item, invalid));
+
+        mvc.perform(post("/recommendations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.results.length()").value(3))
+                .andExpect(jsonPath("$.results[0].index").value(0))
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[0].stale").doesNotExist())
+                .andExpect(jsonPath("$.results[0].recommendations.1[0].id").value("S1E1"))
+                .andExpect(jsonPath("$.results[1].status").value(200))
+                .andExpect(jsonPath("$.results[2].status").value(400))
+                .andExpect(jsonPath("$.results[2].code").value("TES-001"))
+                .andExpect(jsonPath("$.results[2].recommendations").doesNotExist());
+
+        verify(mlClient, times(1)).recommendAsync(ArgumentMatchers.anyMap());
+    }
+
+    @Test
+    void shouldReportMlFailurePerItem() throws Exception {
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("ML down")));
+
+        var payload = Map.of("items", List.of(
+                Map.of("showId", "got", "targetSeason", 3, "immersion", 1, "language", "en")
+        ));
+
+        mvc.perform(post("/recommendations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(503))
+                .andExpect(jsonPath("$.results[0].code").value("TES-002"))
+                .andExpect(jsonPath("$.results[0].title").isNotEmpty());
+    }
+
+    @Test
+    void emptyBatchIsRejected() throws Exception {
+        mvc.perform(post("/recommendations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("items", List.of()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith("application/problem+json"))
+                .andExpect(jsonPath("$.code").value("TES-001"));
+    }
+}
@@ -2,12 +2,14 @@ package com.tes.api.contract;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -15,7 +17,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
-import static org.mockito.Mockito.when;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -36,18 +40,10 @@ class RecommendationContractTest {
     void shouldReturn200WithRecommendationsMap() throws Exception {
         int season = 6;
 
-        Map<String, Object> success = Map.of(
-                "recommendations", Map.of(
-                        String.valueOf(season),
-                        List.of(Map.of(
-                                "id", "S" + season + "E1",
-                                "season", season,
-                                "episode", 1,
-                                "title", "Starter",
-                                "arcs", List.of("test")
-                        ))
-                )
-        );
+        MlRecommendation success = new MlRecommendation(Map.of(
+                season,
+                List.of(new MlRecommendation.MlEpisode("S" + season + "E1", season, 1, "Starter", List.of("test")))
+        ));
 
         when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
                 .thenReturn(CompletableFuture.completedFuture(success));
@@ -70,4 +66,96 @@ class RecommendationContractTest {
                 .andExpect(jsonPath("$.recommendations.6[0].season").value(6))
                 .andExpect(jsonPath("$.recommendations.6[0].episode").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldAnswer304WhenETagMatches() throws Exception {
+        MlRecommendation success = new MlRecommendation(Map.of(
+                1,
+                List.of(new MlRecommendation.MlEpisode("S1E1", 1, 1, "Winter Is Coming", List.of("Stark Family")))
+        ));
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(success));
+
+        String payload = om.writeValueAsString(Map.of(
+                "showId", "got", "targetSeason", 2, "immersion", 1, "language", "en"));
+
+        String etag = mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.recommendations.1[0].id").value("S1E1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .content(payload))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void conditionalGetIsAnsweredWithoutCallingMl() throws Exception {
+        MlRecommendation success = new MlRecommendation(Map.of(
+                4,
+                List.of(new MlRecommendation.MlEpisode("S4E2", 4, 2, "The Lion and the Rose", List.of("Lannister")))
+        ));
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(success));
+
+        String etag = mvc.perform(get("/recommendations")
+                        .param("showId", "got")
+                        .param("targetSeason", "5")
+                        .param("immersion", "4")
+                        .param("language", "ru"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andExpect(jsonPath("$.recommendations.4[0].id").value("S4E2"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/recommendations")
+                        .param("showId", "got")
+                        .param("targetSeason", "5")
+                        .param("immersion", "4")
+                        .param("language", "ru")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+
+        verify(mlClient, times(1)).recommendAsync(ArgumentMatchers.anyMap());
+    }
+
+    @Test
+    void getWithInvalidParamsIsRejected() throws Exception {
+        mvc.perform(get("/recommendations")
+                        .param("showId", "got")
+                        .param("targetSeason", "5")
+                        .param("immersion", "9"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("TES-001"));
+    }
+
+    @Test
+    void unknownShowOrSeasonIsRejectedBeforeMl() throws Exception {
+        // каталог — ml/data: got, сезоны 1..5, так что targetSeason до 6
+        mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of(
+                                "showId", "no-such-show", "targetSeason", 2, "immersion", 3, "language", "en"))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("TES-001"));
+
+        mvc.perform(get("/recommendations")
+                        .param("showId", "got")
+                        .param("targetSeason", "7")
+                        .param("immersion", "3"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("TES-001"));
+
+        verifyNoInteractions(mlClient);
+    }
+}
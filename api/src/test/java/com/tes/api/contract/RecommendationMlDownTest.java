@@ -2,6 +2,7 @@ package com.tes.api.contract;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,18 +10,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.net.ConnectException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+// кэш отключён: иначе успешный ответ из соседнего теста (общий контекст) маскирует падение ML
+@TestPropertySource(properties = "tes.cache.enabled=false")
 class RecommendationMlDownTest {
 
     @Autowired
@@ -53,4 +61,38 @@ class RecommendationMlDownTest {
                 .andExpect(jsonPath("$.status").value(503))
                 .andExpect(jsonPath("$.code").value("TES-002"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void batchAndStreamMarkTheLastKnownGoodAnswerAsStale() throws Exception {
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(new MlRecommendation(Map.of(
+                        1, List.of(new MlRecommendation.MlEpisode("S1E1", 1, 1, "Winter Is Coming", List.of("Stark Family")))))))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("ML down")));
+        var payload = Map.of("showId", "got", "targetSeason", 4, "immersion", 2, "language", "ru");
+
+        mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-TES-Stale"));
+
+        mvc.perform(post("/recommendations:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(Map.of("items", List.of(payload)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[0].stale").value(true))
+                .andExpect(jsonPath("$.results[0].recommendations.1[0].id").value("S1E1"));
+
+        MvcResult started = mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(om.writeValueAsString(payload)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(body.contains("\"season\":1") && body.contains("\"stale\":true"), body);
+    }
+}
@@ -0,0 +1,104 @@
+package com.tes.api.contract;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RecommendationStreamContractTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper om;
+
+    @MockBean
+    MlClient mlClient;
+
+    @Test
+    void ndjsonEmitsOneLinePerSeasonInOrder() throws Exception {
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(new MlRecommendation(Map.of(
+                        2, List.of(new MlRecommendation.MlEpisode("S2E1", 2, 1, "The North Remembers", List.of("War"))),
+                        1, List.of(new MlRecommendation.MlEpisode("S1E1", 1, 1, "Winter Is Coming", List.of("Stark Family")))
+                ))));
+
+        MvcResult started = mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(om.writeValueAsString(Map.of(
+                                "showId", "got", "targetSeason", 3, "immersion", 4, "language", "en"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.strip().split("\n");
+        assertEquals(2, lines.length, body);
+        JsonNode first = om.readTree(lines[0]);
+        assertEquals(1, first.get("season").asInt());
+        assertEquals("S1E1", first.get("episodes").get(0).get("id").asText());
+        assertEquals(2, om.readTree(lines[1]).get("season").asInt());
+    }
+
+    @Test
+    void sseReportsMlFailureAsProblemEventAfterHeadersAreSent() throws Exception {
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("ML down")));
+
+        MvcResult started = mvc.perform(get("/recommendations")
+                        .param("showId", "got").param("targetSeason", "6").param("immersion", "5")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("event:problem"), body);
+        assertTrue(body.contains("\"code\":\"TES-002\""), body);
+        assertFalse(body.contains("event:season"), body);
+    }
+
+    @Test
+    void invalidRequestIsRejectedBeforeStreaming() throws Exception {
+        mvc.perform(post("/recommendations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(om.writeValueAsString(Map.of("showId", "got", "targetSeason", 0))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("TES-001"));
+    }
+}
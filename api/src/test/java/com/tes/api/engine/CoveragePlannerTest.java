@@ -0,0 +1,60 @@
+package com.tes.api.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class CoveragePlannerTest {
+
+    static final List<Episode> EPISODES = List.of(
+            ep(1, "a"), ep(2, "b", "c"), ep(3, "c"), ep(4, "d"));
+    static final float[] SCORES = {0.9f, 0.5f, 0.8f, 0.7f};
+    static final int[] BY_SCORE = {0, 2, 3, 1};
+
+    @Test
+    void coversMostUncoveredArcsFirstThenFallsBackToScore() {
+        // "x" нет в датасете: остаётся непокрытой, добор идёт по score до лимита
+        assertArrayEquals(new int[]{1, 0, 2}, select(EPISODES, BY_SCORE, SCORES, Set.of("a", "b", "c", "x"), 3));
+    }
+
+    @Test
+    void stopsWhenRequiredArcsAreCovered() {
+        assertArrayEquals(new int[]{0}, select(EPISODES, BY_SCORE, SCORES, Set.of("a"), 5));
+    }
+
+    @Test
+    void withoutRequiredArcsTakesTopByScore() {
+        assertArrayEquals(new int[]{0, 2}, select(EPISODES, BY_SCORE, SCORES, Set.of(), 2));
+    }
+
+    @Test
+    void masksSpanSeveralWords() {
+        List<Episode> episodes = new ArrayList<>();
+        int[] candidates = new int[70];
+        float[] scores = new float[70];
+        for (int i = 0; i < 70; i++) {
+            episodes.add(ep(i + 1, "arc-" + i));
+            candidates[i] = i;
+            scores[i] = 1f - i / 100f;
+        }
+        assertArrayEquals(new int[]{3, 69}, select(episodes, candidates, scores, Set.of("arc-69", "arc-3"), 5));
+    }
+
+    private static int[] select(List<Episode> episodes, int[] candidates, float[] scores,
+                                Set<String> required, int immersion) {
+        ArcCoverageIndex index = ArcCoverageIndex.build(episodes);
+        CoveragePlanner.Scratch scratch = new CoveragePlanner.Scratch(index.stride(), candidates.length);
+        int n = CoveragePlanner.selectForSeason(candidates, scores, index, required, immersion, scratch);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = scratch.selected(i);
+        return out;
+    }
+
+    private static Episode ep(int number, String... arcs) {
+        return new Episode("", 1, number, "E" + number, "", List.of(arcs));
+    }
+}
@@ -0,0 +1,55 @@
+package com.tes.api.engine;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.service.impl.RecommendationServiceLocal;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Встроенный движок против эталона Python: parity/got.json снят с ml/app.py
+ * ({@code python -m ml.tools.export_parity_fixtures got}) на том же ml/data/got.yaml.
+ */
+class EngineParityTest {
+
+    static final ObjectMapper om = new ObjectMapper();
+
+    static CoverageEngine engine;
+    static JsonNode fixture;
+
+    @BeforeAll
+    static void load() throws Exception {
+        ShowDataset dataset = ShowDatasetLoader.load(new FileSystemResource("../ml/data/got.yaml"));
+        assertFalse(dataset.isEmpty());
+        engine = new CoverageEngine(dataset);
+        try (InputStream in = new ClassPathResource("parity/got.json").getInputStream()) {
+            fixture = om.readTree(in);
+        }
+    }
+
+    @TestFactory
+    List<DynamicTest> localEngineMatchesPython() {
+        String showId = fixture.get("showId").asText();
+        List<DynamicTest> tests = new ArrayList<>();
+        for (JsonNode c : fixture.get("cases")) {
+            int target = c.get("targetSeason").asInt();
+            int immersion = c.get("immersion").asInt();
+            tests.add(DynamicTest.dynamicTest("targetSeason=" + target + ", immersion=" + immersion, () -> {
+                JsonNode actual = om.valueToTree(RecommendationServiceLocal.toResponse(
+                        engine.recommend(showId, target, immersion)));
+                assertEquals(c.get("recommendations"), actual.get("recommendations"));
+            }));
+        }
+        return tests;
+    }
+}
@@ -0,0 +1,104 @@
+package com.tes.api.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShowCatalogRegistryTest {
+
+    private static final String DEMO = """
+            show: demo
+            seasons:
+              1:
+                - { episode: 1, title: Pilot, arcs: [a] }
+              2:
+                - { episode: 1, title: Return, arcs: [b] }
+            """;
+
+    private static final String OTHER = """
+            - { season: 1, episode: 1, title: Start }
+            """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadsEveryShowAndSwapsOnlyWhenFilesChange() throws Exception {
+        Files.writeString(dir.resolve("demo.yaml"), DEMO);
+        Files.writeString(dir.resolve("other.yml"), OTHER);
+        Files.writeString(dir.resolve("notes.md"), "not a show");
+        ShowCatalogRegistry registry = new ShowCatalogRegistry(dir);
+
+        assertTrue(registry.reload());
+        ShowCatalog first = registry.current();
+        // showId — из поля show, иначе имя файла
+        assertEquals(Set.of("demo", "other"), first.showIds());
+        assertTrue(first.accepts("demo", 3));
+        assertFalse(first.accepts("demo", 4));
+
+        assertFalse(registry.reload());
+        assertSame(first, registry.current());
+
+        Files.writeString(dir.resolve("demo.yaml"), DEMO + """
+                  3:
+                    - { episode: 1, title: End }
+                """);
+        assertTrue(registry.reload());
+        assertTrue(registry.current().accepts("demo", 4));
+        assertEquals("Start", registry.current().show("other").title(0));
+
+        // битый файл не выкидывает шоу: остаётся прежняя версия
+        Files.writeString(dir.resolve("demo.yaml"), "seasons: [unclosed");
+        assertTrue(registry.reload());
+        assertTrue(registry.current().accepts("demo", 4));
+
+        Files.delete(dir.resolve("other.yml"));
+        assertTrue(registry.reload());
+        assertNull(registry.current().show("other"));
+    }
+
+    @Test
+    void watcherPicksUpNewFiles() throws Exception {
+        Files.writeString(dir.resolve("demo.yaml"), DEMO);
+        try (ShowCatalogRegistry registry = new ShowCatalogRegistry(dir)) {
+            registry.reload();
+            // опрос раз в 200 мс страхует ФС, где WatchService не шлёт событий
+            registry.watch(Duration.ofMillis(200));
+
+            Files.writeString(dir.resolve("other.yaml"), OTHER);
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (registry.current().show("other") == null && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNotNull(registry.current().show("other"));
+        }
+    }
+
+    @Test
+    void datasetHolderFollowsTheCatalogSnapshot() throws Exception {
+        Files.writeString(dir.resolve("demo.yaml"), DEMO);
+        ShowCatalogRegistry registry = new ShowCatalogRegistry(dir);
+        registry.reload();
+        ShowDatasetHolder holder = new ShowDatasetHolder(registry, "demo");
+
+        ShowDataset first = holder.current();
+        assertEquals(registry.current().show("demo").version(), first.version());
+        assertEquals(2, first.maxSeason());
+        // та же версия — тот же экземпляр: движок пересобирается по смене ссылки
+        assertSame(first, holder.current());
+
+        Files.writeString(dir.resolve("demo.yaml"), DEMO + """
+                  3:
+                    - { episode: 1, title: End }
+                """);
+        registry.reload();
+        assertEquals(3, holder.current().maxSeason());
+        assertTrue(new ShowDatasetHolder(registry, "missing").current().isEmpty());
+    }
+}
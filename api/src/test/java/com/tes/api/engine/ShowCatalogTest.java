@@ -0,0 +1,72 @@
+package com.tes.api.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShowCatalogTest {
+
+    @Test
+    void storesEpisodesSortedBySeasonWithSharedStrings() {
+        ShowCatalog catalog = new ShowCatalog.Builder()
+                .add("a", "A", "v1", List.of(
+                        new Episode("S2E1", 2, 1, "Return", "", List.of("war")),
+                        new Episode("S1E2", 1, 2, "Second", "two", List.of("war", "north")),
+                        new Episode("S1E1", 1, 1, "Pilot", "one", List.of())))
+                .add("b", "B", "v2", List.of(new Episode("", 1, 1, "Pilot", "", List.of("war"))))
+                .build();
+
+        ShowCatalog.Show a = catalog.show("a");
+        assertEquals(3, a.size());
+        assertEquals(2, a.maxSeason());
+        assertEquals(new Episode("S1E1", 1, 1, "Pilot", "one", List.of()), a.get(0));
+        assertEquals(new Episode("S1E2", 1, 2, "Second", "two", List.of("war", "north")), a.get(1));
+        assertEquals(2, a.seasonStart(2));
+        assertEquals(3, a.seasonStart(3));
+        // арка интернирована на весь каталог
+        assertEquals(a.arcId(1, 0), catalog.show("b").arcId(0, 0));
+        assertEquals(4, catalog.episodeCount());
+    }
+
+    @Test
+    void acceptsKnownShowsAndTargetSeasonsUpToTheOneAfterLast() {
+        ShowCatalog catalog = new ShowCatalog.Builder()
+                .add("a", "A", "v1", List.of(new Episode("", 3, 1, "x", "", List.of())))
+                .build();
+
+        assertTrue(catalog.accepts("a", 1));
+        assertTrue(catalog.accepts("a", 4));
+        assertFalse(catalog.accepts("a", 5));
+        assertFalse(catalog.accepts("a", 0));
+        assertFalse(catalog.accepts("b", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShowCatalog.Builder().add("a", "", "", List.of()).add("a", "", "", List.of()));
+    }
+
+    @Test
+    void hundredThousandEpisodesFitInAFewMegabytes() {
+        // 1000 шоу × 10 сезонов × 10 эпизодов, по 1–3 арки из 30; без описаний.
+        // Тот же набор списком Episode — около 30 МБ (замер кучи), колонки — около 6 МБ.
+        ShowCatalog.Builder builder = new ShowCatalog.Builder();
+        for (int show = 0; show < 1000; show++) {
+            List<Episode> episodes = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                int season = i / 10 + 1;
+                List<String> arcs = new ArrayList<>();
+                for (int k = 0; k <= i % 3; k++) {
+                    arcs.add("arc-" + (show + i + k * 7) % 30);
+                }
+                episodes.add(new Episode("S" + season + "E" + (i % 10 + 1), season, i % 10 + 1,
+                        "Episode " + show + "-" + i, "", arcs));
+            }
+            builder.add("show-" + show, "", "v", episodes);
+        }
+        ShowCatalog catalog = builder.build();
+
+        assertEquals(100_000, catalog.episodeCount());
+        assertTrue(catalog.footprintBytes() < 100_000L * 64, () -> "bytes=" + catalog.footprintBytes());
+    }
+}
@@ -0,0 +1,113 @@
+package com.tes.api.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedAsyncAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("test");
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<ILoggingEvent> written = new CopyOnWriteArrayList<>();
+    private final BoundedAsyncAppender appender = new BoundedAsyncAppender();
+
+    /** Медленный сборщик логов: первое событие держит поток аппендера до release. */
+    private final AppenderBase<ILoggingEvent> slowSink = new AppenderBase<>() {
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.add(event);
+        }
+    };
+
+    BoundedAsyncAppenderTest() {
+        // голый LoggerContext без MDC-адаптера: prepareForDeferredProcessing() упал бы
+        context.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        appender.stop();
+    }
+
+    @Test
+    void dropsByLevelWhenCollectorIsSlowAndExportsGauges() throws Exception {
+        slowSink.setContext(context);
+        slowSink.start();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setQueueSize(10);
+        appender.setDropThreshold(0.5);
+        appender.setMaxBlockMillis(50);
+        appender.addAppender(slowSink);
+        appender.start();
+
+        appender.doAppend(event(Level.INFO));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 6; i++) appender.doAppend(event(Level.INFO));   // 5 в очередь, 6-е — за порогом
+        for (int i = 0; i < 6; i++) appender.doAppend(event(Level.WARN));   // 5 до полной очереди, 6-е — нет места
+        long start = System.nanoTime();
+        appender.doAppend(event(Level.ERROR));                                // ждёт max-block и отбрасывается
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertEquals(10, appender.queueDepth());
+        assertEquals(1, appender.dropped(Level.INFO));
+        assertEquals(1, appender.dropped(Level.WARN));
+        assertEquals(1, appender.dropped(Level.ERROR));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new LoggingQueueMetrics().bindTo(registry);
+        assertEquals(10.0, registry.get("tes.logging.queue.depth").tag("appender", "test").gauge().value());
+        assertEquals(1.0, registry.get("tes.logging.dropped").tags("appender", "test", "level", "WARN")
+                .functionCounter().count());
+
+        release.countDown();
+        appender.stop();
+        assertEquals(11, written.size(), "everything queued is written on stop");
+    }
+
+    @Test
+    void countsEventThatCannotBePreparedAsDropped() {
+        slowSink.setContext(context);
+        slowSink.start();
+        appender.setContext(context);
+        appender.setName("unprepared");
+        appender.addAppender(slowSink);
+        appender.start();
+
+        LoggerContext bare = new LoggerContext();   // без MDC-адаптера
+        appender.doAppend(new LoggingEvent(getClass().getName(), bare.getLogger("test"), Level.WARN,
+                "message", null, null));
+
+        assertEquals(1, appender.dropped(Level.WARN));
+        assertEquals(0, appender.queueDepth());
+        assertTrue(written.isEmpty());
+    }
+
+    private LoggingEvent event(Level level) {
+        return new LoggingEvent(getClass().getName(), logger, level, "message", null, null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.tes.api.service;
+
+import com.tes.api.client.MlClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/** Встроенный движок отвечает сам: таблица ответов не создаётся и в ML не ходит. */
+@SpringBootTest(properties = {"tes.engine=local", "tes.answers.enabled=true"})
+class AnswerTableLocalEngineTest {
+
+    @Autowired
+    ApplicationContext context;
+    @MockBean
+    MlClient mlClient;
+
+    @Test
+    void noAnswerTableWithLocalEngine() {
+        assertTrue(context.getBeansOfType(AnswerTableService.class).isEmpty());
+        assertTrue(context.getBeansOfType(AnswerTableEndpoint.class).isEmpty());
+        verifyNoInteractions(mlClient);
+    }
+}
@@ -0,0 +1,109 @@
+package com.tes.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
+import com.tes.api.engine.ShowDatasetHolder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnswerTableServiceTest {
+
+    private static final String TWO_SEASONS = """
+            show: demo
+            seasons:
+              1:
+                - { episode: 1, title: Pilot, arcs: [a] }
+              2:
+                - { episode: 1, title: Return, arcs: [b] }
+            """;
+
+    private static final MlRecommendation SUCCESS = new MlRecommendation(Map.of(
+            1, List.of(new MlRecommendation.MlEpisode("", 1, 1, "Pilot", List.of("a")))
+    ));
+
+    @TempDir
+    Path dir;
+
+    private final MlClient mlClient = mock(MlClient.class);
+
+    @Test
+    void buildsEveryKeyAndServesOnlyCurrentVersion() throws Exception {
+        Path file = dir.resolve("demo.yaml");
+        Files.writeString(file, TWO_SEASONS);
+        ShowDatasetHolder datasets = new ShowDatasetHolder(new FileSystemResource(file));
+        datasets.reload();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+
+        AnswerTableService service = new AnswerTableService(mlClient, datasets, new ObjectMapper(), true, 4);
+        AnswerTable table = service.rebuild();
+
+        // targetSeason 1..3 × immersion 1..5 × en/ru
+        assertEquals(30, table.expected());
+        assertTrue(table.isComplete());
+        verify(mlClient, times(30)).recommendAsync(ArgumentMatchers.anyMap());
+        assertNotNull(service.lookup(new RecommendationKey("demo", 3, 5, "ru")));
+        assertNull(service.lookup(new RecommendationKey("demo", 4, 5, "ru")));
+
+        // новый датасет: старая таблица больше не отвечает
+        Files.writeString(file, TWO_SEASONS + "    - { episode: 2, title: Siege, arcs: [c] }\n");
+        assertTrue(datasets.reload());
+        assertNull(service.lookup(new RecommendationKey("demo", 3, 5, "ru")));
+    }
+
+    @Test
+    void failedKeysAreLeftOutOfTheTable() throws Exception {
+        Path file = dir.resolve("demo.yaml");
+        Files.writeString(file, TWO_SEASONS);
+        ShowDatasetHolder datasets = new ShowDatasetHolder(new FileSystemResource(file));
+        datasets.reload();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+
+        AnswerTable table = new AnswerTableService(mlClient, datasets, new ObjectMapper(), true, 1).rebuild();
+
+        assertEquals(29, table.size());
+        assertFalse(table.isComplete());
+    }
+
+    @Test
+    void retriesOnlyTheMissingKeys() throws Exception {
+        Path file = dir.resolve("demo.yaml");
+        Files.writeString(file, TWO_SEASONS);
+        ShowDatasetHolder datasets = new ShowDatasetHolder(new FileSystemResource(file));
+        datasets.reload();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+        AnswerTableService service = new AnswerTableService(mlClient, datasets, new ObjectMapper(), true, 1);
+        service.rebuild();
+
+        AnswerTable filled = service.fillMissing();
+
+        assertTrue(filled.isComplete());
+        // 30 при сборке + 1 повтор, а не ещё 30
+        verify(mlClient, times(31)).recommendAsync(ArgumentMatchers.anyMap());
+    }
+
+    @Test
+    void disabledTableIsNotRefreshed() {
+        ShowDatasetHolder datasets = mock(ShowDatasetHolder.class);
+
+        new AnswerTableService(mlClient, datasets, new ObjectMapper(), false, 4).refresh();
+
+        verifyNoInteractions(datasets, mlClient);
+    }
+}
@@ -0,0 +1,115 @@
+package com.tes.api.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedResponseLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsAndSurvivesReopen() throws Exception {
+        Path file = dir.resolve("responses.log");
+        try (MappedResponseLog log = MappedResponseLog.open(file, 4096)) {
+            assertTrue(log.append("a", bytes("first")));
+            assertTrue(log.append("b", bytes("second")));
+            assertTrue(log.append("a", bytes("third")));
+            assertEquals("third", text(log.get("a")));
+            assertNull(log.get("c"));
+            assertTrue(log.deadBytes() > 0);
+        }
+        try (MappedResponseLog log = MappedResponseLog.open(file, 4096)) {
+            assertEquals(2, log.size());
+            assertEquals("third", text(log.get("a")));
+            assertEquals("second", text(log.get("b")));
+        }
+    }
+
+    @Test
+    void dropsTornTailAfterCrash() throws Exception {
+        Path file = dir.resolve("responses.log");
+        int tornRecord;
+        try (MappedResponseLog log = MappedResponseLog.open(file, 4096)) {
+            log.append("a", bytes("kept"));
+            tornRecord = log.usedBytes();
+            log.append("b", bytes("lost"));
+        }
+        // сбой посреди записи "b": длина на месте, а тело — нет
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), tornRecord + 10 + 1);
+        }
+        try (MappedResponseLog log = MappedResponseLog.open(file, 4096)) {
+            assertEquals(1, log.size());
+            assertEquals("kept", text(log.get("a")));
+            assertNull(log.get("b"));
+            assertEquals(tornRecord, log.usedBytes());
+
+            assertTrue(log.append("c", bytes("x")));
+        }
+        try (MappedResponseLog log = MappedResponseLog.open(file, 4096)) {
+            assertEquals("x", text(log.get("c")));
+            assertNull(log.get("b"));
+        }
+    }
+
+    @Test
+    void compactionKeepsSelectedLiveEntriesWhenFull() throws Exception {
+        Path file = dir.resolve("responses.log");
+        try (MappedResponseLog log = MappedResponseLog.open(file, 256)) {
+            int appended = 0;
+            while (log.append((appended % 2 == 0 ? "v1/" : "v2/") + appended, new byte[16])) appended++;
+            assertTrue(appended > 4);
+
+            assertTrue(log.compact((k, v) -> k.startsWith("v2/")) > 0);
+            assertEquals(appended / 2, log.size());
+            assertNull(log.get("v1/0"));
+            assertNotNull(log.get("v2/1"));
+            assertEquals(0, log.deadBytes());
+            assertTrue(log.append("v2/new", bytes("fits again")));
+        }
+        assertFalse(Files.exists(dir.resolve("responses.log.compact")));
+        try (MappedResponseLog log = MappedResponseLog.open(file, 256)) {
+            assertEquals("fits again", text(log.get("v2/new")));
+            assertNull(log.get("v1/0"));
+        }
+    }
+
+    @Test
+    void compactionWithNothingToReclaimLeavesTheFileAlone() throws Exception {
+        Path file = dir.resolve("responses.log");
+        try (MappedResponseLog log = MappedResponseLog.open(file, 256)) {
+            log.append("a", bytes("one"));
+            log.append("b", bytes("two"));
+            int used = log.usedBytes();
+
+            assertEquals(0, log.compact((k, v) -> true));
+            assertEquals(used, log.usedBytes());
+            assertEquals("one", text(log.get("a")));
+
+            // значение видно предикату: по нему отбирают, например, устаревшие записи
+            assertTrue(log.compact((k, v) -> !text(v).equals("one")) > 0);
+            assertNull(log.get("a"));
+            assertEquals("two", text(log.get("b")));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer b) {
+        byte[] out = new byte[b.remaining()];
+        b.get(out);
+        return new String(out, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,267 @@
+package com.tes.api.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
+import com.tes.api.dto.RecommendationRequest;
+import com.tes.api.engine.ShowDatasetHolder;
+import com.tes.api.metrics.StageTimers;
+import com.tes.api.service.AnswerTableService;
+import com.tes.api.service.LastKnownGoodStore;
+import com.tes.api.service.PersistentResponseStore;
+import com.tes.api.web.MlTimeoutException;
+import com.tes.api.web.MlUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RecommendationServiceHttpCacheTest {
+
+    private static final MlRecommendation SUCCESS = new MlRecommendation(Map.of(
+            1, List.of(new MlRecommendation.MlEpisode("S1E1", 1, 1, "Winter Is Coming", List.of("Stark Family")))
+    ));
+
+    @TempDir
+    Path dir;
+
+    private final MlClient mlClient = mock(MlClient.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RecommendationServiceHttp service = new RecommendationServiceHttp(
+            mlClient, mock(AnswerTableService.class),
+            new ShowDatasetHolder(new ByteArrayResource(new byte[0])), new ObjectMapper(), registry, StageTimers.disabled(),
+            new LastKnownGoodStore(100), mock(PersistentResponseStore.class),
+            false, true, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+    @Test
+    void concurrentIdenticalRequestsShareOneMlCall() {
+        CompletableFuture<MlRecommendation> upstream = new CompletableFuture<>();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap())).thenReturn(upstream);
+
+        var req = new RecommendationRequest("got", 2, 3, "en");
+        // оба запроса (с разных потоков) уже ждут, когда ML отвечает: иначе второй — просто попадание в кэш
+        var first = CompletableFuture.supplyAsync(() -> service.recommendAsync(req)).join();
+        var second = CompletableFuture.supplyAsync(() -> service.recommendAsync(req)).join();
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        verify(mlClient, times(1)).recommendAsync(ArgumentMatchers.anyMap());
+
+        upstream.complete(SUCCESS);
+
+        assertEquals(first.join(), second.join());
+        verify(mlClient, times(1)).recommendAsync(ArgumentMatchers.anyMap());
+    }
+
+    @Test
+    void cancellingTheLastWaiterCancelsTheMlCall() {
+        CompletableFuture<MlRecommendation> upstream = new CompletableFuture<>();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap())).thenReturn(upstream);
+
+        var req = new RecommendationRequest("got", 4, 3, "en");
+        var streaming = service.recommendAsync(req);
+        var other = service.recommendAsync(req);
+
+        streaming.cancel(false);
+        verify(mlClient, never()).cancel(ArgumentMatchers.anyMap());   // второй запрос ещё ждёт
+
+        other.cancel(false);
+        verify(mlClient, times(1)).cancel(ArgumentMatchers.anyMap());
+
+        // отменённая загрузка не остаётся в кэше
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap())).thenReturn(CompletableFuture.completedFuture(SUCCESS));
+        assertEquals(200, service.recommend(req).getStatusCode().value());
+        verify(mlClient, times(2)).recommendAsync(ArgumentMatchers.anyMap());
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+
+        var req = new RecommendationRequest("got", 2, 3, "en");
+        assertThrows(IllegalStateException.class, () -> service.recommend(req));
+        assertEquals(200, service.recommend(req).getStatusCode().value());
+        assertEquals(200, service.recommend(req).getStatusCode().value());
+
+        verify(mlClient, times(2)).recommendAsync(ArgumentMatchers.anyMap());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "recommendations").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void servesLastKnownGoodWhileMlIsDown() {
+        var uncached = service(false);
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("ML down")));
+
+        var req = new RecommendationRequest("got", 2, 3, "en");
+        var fresh = uncached.recommend(req);
+        var stale = uncached.recommend(req);
+
+        assertEquals(200, stale.getStatusCode().value());
+        assertArrayEquals((byte[]) fresh.getBody(), (byte[]) stale.getBody());
+        assertEquals("true", stale.getHeaders().getFirst(RecommendationServiceHttp.STALE_HEADER));
+        assertNotNull(stale.getHeaders().getFirst(HttpHeaders.AGE));
+        assertNull(fresh.getHeaders().getFirst(RecommendationServiceHttp.STALE_HEADER));
+
+        // неблокирующий путь (пакет, поток) — тот же ответ с пометкой stale
+        var async = uncached.recommendAsync(req).join();
+        assertTrue(async.stale());
+        assertEquals(SUCCESS.recommendations().keySet(), async.response().recommendations().keySet());
+
+        // ключ без истории — по-прежнему 503
+        assertThrows(MlUnavailableException.class,
+                () -> uncached.recommend(new RecommendationRequest("got", 3, 3, "en")));
+    }
+
+    @Test
+    void readTimeoutAndPrematureCloseAreGatewayTimeouts() {
+        var uncached = service(false);
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(requestFailure(ReadTimeoutException.INSTANCE)))
+                .thenReturn(CompletableFuture.failedFuture(requestFailure(PrematureCloseException.TEST_EXCEPTION)))
+                .thenReturn(CompletableFuture.failedFuture(requestFailure(new ConnectException("refused"))));
+
+        var req = new RecommendationRequest("got", 5, 3, "en");
+        assertThrows(MlTimeoutException.class, () -> uncached.recommend(req));
+        assertThrows(MlTimeoutException.class, () -> uncached.recommend(req));
+        // до ML не достучались — по-прежнему 503
+        assertThrows(MlUnavailableException.class, () -> uncached.recommend(req));
+    }
+
+    private static WebClientRequestException requestFailure(Throwable cause) {
+        return new WebClientRequestException(cause, HttpMethod.POST, URI.create("http://ml:5000/recommendations"),
+                new HttpHeaders());
+    }
+
+    @Test
+    void strictModeNeverServesStale() {
+        var strict = new RecommendationServiceHttp(mlClient, mock(AnswerTableService.class),
+                new ShowDatasetHolder(new ByteArrayResource(new byte[0])), new ObjectMapper(), registry, StageTimers.disabled(),
+                new LastKnownGoodStore(100), mock(PersistentResponseStore.class),
+                true, false, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("ML down")));
+
+        var req = new RecommendationRequest("got", 2, 3, "en");
+        strict.recommend(req);
+        assertThrows(MlUnavailableException.class, () -> strict.recommend(req));
+    }
+
+    @Test
+    void loadStartedUnderAnOldDatasetIsNotServedForTheNewOne() throws Exception {
+        Path file = dir.resolve("got.yaml");
+        Files.writeString(file, "- { season: 1, episode: 1, title: Pilot }\n");
+        ShowDatasetHolder datasets = new ShowDatasetHolder(new FileSystemResource(file));
+        datasets.reload();
+        var versioned = new RecommendationServiceHttp(mlClient, mock(AnswerTableService.class),
+                datasets, new ObjectMapper(), new SimpleMeterRegistry(), StageTimers.disabled(),
+                new LastKnownGoodStore(100), mock(PersistentResponseStore.class),
+                false, true, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        CompletableFuture<MlRecommendation> old = new CompletableFuture<>();
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(old)
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+
+        var req = new RecommendationRequest("got", 2, 3, "en");
+        var before = versioned.recommendAsync(req);
+        Files.writeString(file, "- { season: 1, episode: 1, title: Pilot }\n- { season: 2, episode: 1, title: Next }\n");
+        assertTrue(datasets.reload());
+        old.complete(new MlRecommendation(Map.of()));
+        before.join();
+
+        var after = versioned.recommend(req);
+        verify(mlClient, times(2)).recommendAsync(ArgumentMatchers.anyMap());
+        // ETag — от байтов ответа; готовый ответ отдаёт его без вызова ML
+        assertEquals(after.getHeaders().getETag(), versioned.etag(req));
+    }
+
+    @Test
+    void storedResponseIsRestoredOnlyWithinItsTtl() throws Exception {
+        TestClock clock = new TestClock();
+        Path file = dir.resolve("responses.log");
+        when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(SUCCESS));
+        var req = new RecommendationRequest("got", 2, 3, "en");
+
+        PersistentResponseStore written = store(file, clock);
+        service(written).recommend(req);
+        written.close(); // дожидается фоновой записи
+
+        // рестарт: промах кэша в памяти находит ответ в файле
+        PersistentResponseStore restored = store(file, clock);
+        service(restored).recommend(req);
+        verify(mlClient, times(1)).recommendAsync(ArgumentMatchers.anyMap());
+
+        // ttl прошёл: ответ ещё в файле, но отдаваться из него не должен
+        clock.now = clock.now.plus(Duration.ofMinutes(11));
+        service(restored).recommend(req);
+        verify(mlClient, times(2)).recommendAsync(ArgumentMatchers.anyMap());
+        restored.close();
+    }
+
+    private RecommendationServiceHttp service(boolean cacheEnabled) {
+        return new RecommendationServiceHttp(mlClient, mock(AnswerTableService.class),
+                new ShowDatasetHolder(new ByteArrayResource(new byte[0])), new ObjectMapper(), new SimpleMeterRegistry(), StageTimers.disabled(),
+                new LastKnownGoodStore(100), mock(PersistentResponseStore.class),
+                false, cacheEnabled, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+    }
+
+    private RecommendationServiceHttp service(PersistentResponseStore store) {
+        return new RecommendationServiceHttp(mlClient, mock(AnswerTableService.class),
+                new ShowDatasetHolder(new ByteArrayResource(new byte[0])), new ObjectMapper(), new SimpleMeterRegistry(), StageTimers.disabled(),
+                new LastKnownGoodStore(100), store,
+                false, true, 100, Duration.ofMinutes(5), Duration.ofMinutes(1));
+    }
+
+    private static PersistentResponseStore store(Path file, Clock clock) {
+        return new PersistentResponseStore(new ObjectMapper(), new SimpleMeterRegistry(), true, file.toString(),
+                DataSize.ofKilobytes(64), Duration.ofMinutes(10), 16, clock);
+    }
+
+    private static final class TestClock extends Clock {
+        volatile Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.tes.api.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tes.api.client.MlClient;
+import com.tes.api.client.MlRecommendation;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,18 +37,10 @@ class RateLimitTest {
     @Test
     void returns429AfterLimitExceeded() throws Exception {
         int season = 6;
-        Map<String, Object> success = Map.of(
-                "recommendations", Map.of(
-                        String.valueOf(season),
-                        List.of(Map.of(
-                                "id", "S" + season + "E1",
-                                "season", season,
-                                "episode", 1,
-                                "title", "Starter",
-                                "arcs", List.of("test")
-                        ))
-                )
-        );
+        MlRecommendation success = new MlRecommendation(Map.of(
+                season,
+                List.of(new MlRecommendation.MlEpisode("S" + season + "E1", season, 1, "Starter", List.of("test")))
+        ));
         when(mlClient.recommendAsync(ArgumentMatchers.anyMap()))
                 .thenReturn(CompletableFuture.completedFuture(success));
 
@@ -72,6 +65,17 @@ class RateLimitTest {
                 .andExpect(header().exists("X-RateLimit-Reset"))
                 .andExpect(content().contentTypeCompatibleWith("application/problem+json"))
                 .andExpect(jsonPath("$.code").value("TES-003"))
-                .andExpect(jsonPath("$.status").value(429));
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.instance").value("/recommendations"))
+                .andExpect(jsonPath("$.correlationId").isNotEmpty());
+
+        // та же отбивка на русском (готовый шаблон на язык)
+        mvc.perform(post("/recommendations")
+                        .header("Accept-Language", "ru-RU")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(payload)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.title").value("Слишком много запросов, пожалуйста, снизьте частоту"))
+                .andExpect(jsonPath("$.code").value("TES-003"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.tes.api.web;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.tes.api.metrics.StageTimers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestLoggingFilterTest {
+
+    private static final String BODY = "{\"showId\":\"got\",\"targetSeason\":2,\"immersion\":3,\"language\":\"en\"}";
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLoggingFilter.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void attach() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detach() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void sampledRequestLogsCappedBodyAsMdcFieldsWithoutChangingIt() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(StageTimers.disabled(), true, 1.0, 16);
+        AtomicReference<String> seenByController = new AtomicReference<>();
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (rq, rs) ->
+                seenByController.set(new String(rq.getInputStream().readAllBytes(), StandardCharsets.UTF_8)));
+
+        assertEquals(BODY, seenByController.get(), "controller reads the whole body");
+        assertEquals(1, appender.list.size());
+        Map<String, String> mdc = appender.list.get(0).getMDCPropertyMap();
+        assertEquals("POST", mdc.get(RequestLoggingFilter.METHOD));
+        assertEquals("/recommendations", mdc.get(RequestLoggingFilter.PATH));
+        assertEquals("200", mdc.get(RequestLoggingFilter.STATUS));
+        assertEquals(BODY.substring(0, 16), mdc.get(RequestLoggingFilter.BODY));
+        assertEquals(String.valueOf(BODY.length()), mdc.get(RequestLoggingFilter.BODY_BYTES));
+        assertEquals("true", mdc.get(RequestLoggingFilter.BODY_TRUNCATED));
+        assertNull(MDC.get(RequestLoggingFilter.BODY), "MDC is cleaned up after the line");
+    }
+
+    @Test
+    void unsampledRequestIsNotWrappedButServerErrorsAreLogged() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(StageTimers.disabled(), true, 0.0, 1024);
+        MockHttpServletRequest req = request();
+
+        filter.doFilter(req, new MockHttpServletResponse(), (rq, rs) -> assertSame(req, rq));
+        assertTrue(appender.list.isEmpty());
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (rq, rs) ->
+                ((MockHttpServletResponse) rs).setStatus(503));
+        assertEquals(1, appender.list.size());
+        Map<String, String> mdc = appender.list.get(0).getMDCPropertyMap();
+        assertEquals("503", mdc.get(RequestLoggingFilter.STATUS));
+        assertNull(mdc.get(RequestLoggingFilter.BODY));
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", "/recommendations");
+        req.setContentType("application/json");
+        req.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        return req;
+    }
+}
@@ -0,0 +1,119 @@
+package com.tes.api.web.filters;
+
+import com.tes.api.client.MlCallCounter;
+import com.tes.api.metrics.StageTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final RateLimitFilter filter = new RateLimitFilter(
+            new RateLimitPolicy(
+                    List.of(
+                            new RateLimitTier("ip", RateLimitTier.Scope.IP,
+                                    new Bucket4jRateLimiter(10, Duration.ofHours(1), 100)),
+                            new RateLimitTier("key", RateLimitTier.Scope.API_KEY,
+                                    new Bucket4jRateLimiter(5, Duration.ofHours(1), 100))),
+                    Map.of("/recommendations:batch", 3L), 1, 2, "X-API-Key"),
+            registry, new StageTimers(registry, true, false), 1);
+
+    /** Имитация запроса, который дошёл до ML один раз. */
+    private final FilterChain callsMl = (rq, rs) -> {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes((HttpServletRequest) rq));
+        try {
+            MlCallCounter.record();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    };
+
+    @Test
+    void chargesEveryTierForRouteCostAndMlCalls() throws Exception {
+        // 1 токен за маршрут; после ответа +2 за вызов ML на каждом уровне
+        MockHttpServletResponse first = perform("/recommendations", "k1", callsMl);
+        assertEquals(200, first.getStatus());
+        assertEquals("9", first.getHeader("X-RateLimit-Remaining-Ip"));
+        assertEquals("4", first.getHeader("X-RateLimit-Remaining-Key"));
+        assertEquals("key", first.getHeader("X-RateLimit-Tier"));
+        assertEquals("5", first.getHeader("X-RateLimit-Limit"));
+        assertEquals("4", first.getHeader("X-RateLimit-Remaining"));
+
+        // батч стоит 3: у ключа осталось 2 — отказ уровнем key
+        MockHttpServletResponse batch = perform("/recommendations:batch", "k1", (rq, rs) -> fail("must be rejected"));
+        assertEquals(429, batch.getStatus());
+        assertEquals("key", batch.getHeader("X-RateLimit-Tier"));
+        assertEquals("2", batch.getHeader("X-RateLimit-Remaining"));
+
+        // без ключа уровень key не применяется; ip уже потратил 1 + 2 + 3
+        MockHttpServletResponse anonymous = perform("/recommendations", null, (rq, rs) -> { });
+        assertEquals(200, anonymous.getStatus());
+        assertEquals("3", anonymous.getHeader("X-RateLimit-Remaining-Ip"));
+        assertNull(anonymous.getHeader("X-RateLimit-Remaining-Key"));
+        assertEquals("ip", anonymous.getHeader("X-RateLimit-Tier"));
+
+        assertEquals(1.0, registry.get("tes.ratelimit.requests")
+                .tags("tier", "key", "outcome", "rejected").counter().count());
+        assertEquals(2.0, registry.get("tes.ratelimit.tokens")
+                .tags("tier", "ip", "kind", "ml").counter().count());
+        assertEquals(5.0, registry.get("tes.ratelimit.tokens")
+                .tags("tier", "ip", "kind", "request").counter().count());
+
+        assertEquals(1, registry.get("tes.request.stage")
+                .tags("stage", "ratelimit", "outcome", "TES-003").timer().count());
+        assertEquals(2, registry.get("tes.request.stage")
+                .tags("stage", "total", "outcome", "ok").timer().count());
+    }
+
+    @Test
+    void fullGlobalTierRefundsClientTiers() throws Exception {
+        RateLimitFilter withGlobal = new RateLimitFilter(
+                new RateLimitPolicy(
+                        List.of(
+                                new RateLimitTier("ip", RateLimitTier.Scope.IP,
+                                        new Bucket4jRateLimiter(10, Duration.ofHours(1), 100)),
+                                new RateLimitTier("global", RateLimitTier.Scope.GLOBAL,
+                                        new Bucket4jRateLimiter(1, Duration.ofHours(1), 1))),
+                        Map.of(), 1, 0, "X-API-Key"),
+                registry, new StageTimers(registry, true, false), 1);
+
+        assertEquals(200, perform(withGlobal, "/recommendations", null, (rq, rs) -> { }).getStatus());
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletResponse rejected = perform(withGlobal, "/recommendations", null,
+                    (rq, rs) -> fail("must be rejected"));
+            assertEquals(429, rejected.getStatus());
+            assertEquals("global", rejected.getHeader("X-RateLimit-Tier"));
+            // отказы глобального уровня не едят квоту IP: списан только первый запрос
+            assertEquals("9", rejected.getHeader("X-RateLimit-Remaining-Ip"));
+        }
+        assertEquals(4.0, registry.get("tes.ratelimit.tokens")
+                .tags("tier", "ip", "kind", "refund").counter().count());
+    }
+
+    private MockHttpServletResponse perform(String path, String apiKey, FilterChain chain) throws Exception {
+        return perform(filter, path, apiKey, chain);
+    }
+
+    private static MockHttpServletResponse perform(RateLimitFilter filter, String path, String apiKey,
+                                                   FilterChain chain) throws Exception {
+        MockHttpServletRequest req = new MockHttpServletRequest("POST", path);
+        req.setRemoteAddr("198.51.100.4");
+        if (apiKey != null) req.addHeader("X-API-Key", apiKey);
+        MockHttpServletResponse resp = new MockHttpServletResponse();
+        filter.doFilter(req, resp, chain);
+        return resp;
+    }
+}
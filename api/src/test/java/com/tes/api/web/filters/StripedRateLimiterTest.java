@@ -0,0 +1,80 @@
+package com.tes.api.web.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedRateLimiterTest {
+
+    private long now;
+
+    @Test
+    void limitsPerKeyAndRefillsInNextWindow() {
+        StripedRateLimiter limiter = new StripedRateLimiter(3, Duration.ofHours(1), 1000, 2, () -> now);
+        assertEquals(1024, limiter.width());
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryConsume("10.0.0.1", 1).consumed());
+        }
+        RateLimiterBackend.Probe rejected = limiter.tryConsume("10.0.0.1", 1);
+        assertFalse(rejected.consumed());
+        assertEquals(0, rejected.remaining());
+        assertEquals(Duration.ofHours(1).toNanos(), rejected.nanosToReset());
+
+        // другой IP — своя квота
+        assertEquals(2, limiter.tryConsume("10.0.0.2", 1).remaining());
+
+        now = Duration.ofMinutes(61).toNanos();
+        RateLimiterBackend.Probe refilled = limiter.tryConsume("10.0.0.1", 1);
+        assertTrue(refilled.consumed());
+        assertEquals(2, refilled.remaining());
+        assertEquals(Duration.ofMinutes(59).toNanos(), refilled.nanosToReset());
+    }
+
+    @Test
+    void refundReturnsTokensWithinTheWindow() {
+        StripedRateLimiter limiter = new StripedRateLimiter(3, Duration.ofHours(1), 1000, 2, () -> now);
+        limiter.tryConsume("10.0.0.1", 2);
+        assertEquals(2, limiter.refund("10.0.0.1", 1));
+        assertEquals(1, limiter.tryConsume("10.0.0.1", 1).remaining());
+
+        // возврат не поднимает остаток выше ёмкости
+        assertEquals(3, limiter.refund("10.0.0.2", 5));
+        assertEquals(2, limiter.tryConsume("10.0.0.2", 1).remaining());
+    }
+
+    @Test
+    void concurrentRequestsOfOneKeyNeverExceedCapacity() throws Exception {
+        StripedRateLimiter limiter = new StripedRateLimiter(1000, Duration.ofHours(1), 16, 4);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        for (int t = 0; t < 16; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (limiter.tryConsume("hot", 1).consumed()) admitted.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1000, admitted.get());
+    }
+
+    @Test
+    void manyDistinctKeysDoNotLockOutNewClients() {
+        StripedRateLimiter limiter = new StripedRateLimiter(60, Duration.ofHours(1), 1 << 16, 4, () -> now);
+        // скан: 200k разных IP по одному запросу
+        for (int i = 0; i < 200_000; i++) {
+            limiter.tryConsume("10." + (i >> 16) + "." + ((i >> 8) & 255) + "." + (i & 255), 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryConsume("172.16." + (i >> 8) + "." + (i & 255), 1).consumed());
+        }
+    }
+}
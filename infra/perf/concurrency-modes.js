@@ -0,0 +1,76 @@
+// Сколько одновременных запросов держит API при фиксированном p99.
+//
+// Open-model нагрузка (ramping-arrival-rate) растёт ступенями; как только p99 превышает P99_MS,
+// прогон останавливается, и в отчёте остаётся максимальное число активных VU (= запросов в полёте)
+// и достигнутый RPS. Запускать одинаково для обоих режимов и сравнивать отчёты:
+//
+//   # платформенные потоки Tomcat (по умолчанию)
+//   TES_VIRTUAL_THREADS=false TES_CACHE_ENABLED=false RATELIMIT_PERIP_CAPACITY=1000000000 \
+//     docker compose -f infra/docker-compose.yml up api ml
+//   k6 run -e MODE=platform infra/perf/concurrency-modes.js
+//
+//   # виртуальные потоки Java 21
+//   TES_VIRTUAL_THREADS=true TES_CACHE_ENABLED=false RATELIMIT_PERIP_CAPACITY=1000000000 \
+//     docker compose -f infra/docker-compose.yml up api ml
+//   k6 run -e MODE=virtual infra/perf/concurrency-modes.js
+//
+// Кэш и rate limit выключены, чтобы каждый запрос проходил полный круг до ML.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'unknown';
+const P99_MS = Number(__ENV.P99_MS || 1000);
+
+export const options = {
+  discardResponseBodies: true,
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+  scenarios: {
+    ramp: {
+      executor: 'ramping-arrival-rate',
+      startRate: 10,
+      timeUnit: '1s',
+      preAllocatedVUs: 100,
+      maxVUs: Number(__ENV.MAX_VUS || 3000),
+      stages: [
+        { target: 50, duration: '30s' },
+        { target: 200, duration: '1m' },
+        { target: 500, duration: '1m' },
+        { target: 1000, duration: '1m' },
+        { target: 2000, duration: '1m' },
+      ],
+    },
+  },
+  thresholds: {
+    http_req_duration: [{ threshold: `p(99)<${P99_MS}`, abortOnFail: true, delayAbortEval: '15s' }],
+  },
+};
+
+export default function () {
+  const payload = JSON.stringify({
+    showId: 'got',
+    targetSeason: 2 + Math.floor(Math.random() * 7),
+    immersion: 1 + Math.floor(Math.random() * 5),
+    language: 'en',
+  });
+  const res = http.post(`${BASE_URL}/recommendations`, payload, {
+    headers: { 'Content-Type': 'application/json' },
+  });
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+  const m = data.metrics;
+  const report = {
+    mode: MODE,
+    p99Budget: P99_MS,
+    p99: m.http_req_duration.values['p(99)'],
+    maxConcurrent: m.vus.values.max,
+    achievedRps: m.http_reqs.values.rate,
+    failedRate: m.http_req_failed ? m.http_req_failed.values.rate : 0,
+  };
+  return {
+    stdout: JSON.stringify(report, null, 2) + '\n',
+    [`concurrency-${MODE}.json`]: JSON.stringify(report, null, 2),
+  };
+}
@@ -0,0 +1,105 @@
+#!/usr/bin/env python3
+"""Сравнение двух прогонов JMH (-rf json) между коммитами.
+
+    cd api
+    git checkout main   && mvn -Pjmh -DskipTests verify -Djmh.result=target/jmh-base.json
+    git checkout branch && mvn -Pjmh -DskipTests verify -Djmh.result=target/jmh-head.json
+    python3 ../infra/perf/jmh_compare.py target/jmh-base.json target/jmh-head.json
+
+Для каждого бенчмарка (имя + @Param) печатает score и gc.alloc.rate.norm (байт на операцию)
+до и после. Регрессия — score хуже больше чем на --threshold процентов с учётом погрешности
+обоих прогонов, или аллокации на операцию выросли больше чем на --alloc-threshold процентов.
+Код возврата 1, если есть регрессии: скрипт можно ставить в CI как гейт.
+"""
+import argparse
+import json
+import sys
+
+ALLOC = "gc.alloc.rate.norm"
+
+# режимы, где больше — лучше; остальные (avgt, sample, ss) — время на операцию
+HIGHER_IS_BETTER = {"thrpt"}
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        runs = json.load(f)
+    out = {}
+    for r in runs:
+        params = r.get("params") or {}
+        key = r["benchmark"].rsplit(".", 2)[-2] + "." + r["benchmark"].rsplit(".", 1)[-1]
+        if params:
+            key += "[" + ",".join(f"{k}={v}" for k, v in sorted(params.items())) + "]"
+        primary = r["primaryMetric"]
+        alloc = (r.get("secondaryMetrics") or {}).get(ALLOC)
+        out[key] = {
+            "mode": r["mode"],
+            "score": primary["score"],
+            # при одной итерации JMH пишет "NaN" строкой
+            "error": float(primary.get("scoreError") or 0.0),
+            "unit": primary["scoreUnit"],
+            "alloc": alloc["score"] if alloc else None,
+        }
+    return out
+
+
+def pct(before, after):
+    return float("inf") if before == 0 else (after - before) / before * 100.0
+
+
+def is_nan(x):
+    return x != x
+
+
+def compare(base, head, threshold, alloc_threshold):
+    rows, regressions = [], []
+    for key in sorted(set(base) | set(head)):
+        b, h = base.get(key), head.get(key)
+        if b is None or h is None:
+            rows.append((key, "only in " + ("head" if b is None else "base"), "", ""))
+            continue
+        # погрешность JMH (99.9% CI) не считается регрессией: сравниваем худшую границу base с лучшей head
+        err_b = 0.0 if is_nan(b["error"]) else b["error"]
+        err_h = 0.0 if is_nan(h["error"]) else h["error"]
+        change = pct(b["score"], h["score"])
+        if b["mode"] in HIGHER_IS_BETTER:
+            worse = pct(b["score"] - err_b, h["score"] + err_h) < -threshold
+        else:
+            worse = pct(b["score"] + err_b, h["score"] - err_h) > threshold
+        score = f"{b['score']:.3f} -> {h['score']:.3f} {h['unit']} ({change:+.1f}%)"
+
+        alloc = ""
+        alloc_worse = False
+        if b["alloc"] is not None and h["alloc"] is not None:
+            alloc_change = pct(b["alloc"], h["alloc"])
+            # меньше 16 байт — шум (выравнивание, escape analysis)
+            alloc_worse = h["alloc"] - b["alloc"] >= 16 and alloc_change > alloc_threshold
+            alloc = f"{b['alloc']:.0f} -> {h['alloc']:.0f} B/op ({alloc_change:+.1f}%)"
+
+        flag = "REGRESSION" if worse or alloc_worse else ""
+        if flag:
+            regressions.append(key)
+        rows.append((key, score, alloc, flag))
+    return rows, regressions
+
+
+def main(argv=None):
+    ap = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    ap.add_argument("base", help="jmh-result.json базового коммита")
+    ap.add_argument("head", help="jmh-result.json проверяемого коммита")
+    ap.add_argument("--threshold", type=float, default=5.0, help="допустимое ухудшение score, %% (5)")
+    ap.add_argument("--alloc-threshold", type=float, default=10.0, help="допустимый рост B/op, %% (10)")
+    args = ap.parse_args(argv)
+
+    rows, regressions = compare(load(args.base), load(args.head), args.threshold, args.alloc_threshold)
+    width = max((len(r[0]) for r in rows), default=0)
+    for key, score, alloc, flag in rows:
+        print(f"{key:<{width}}  {score:<48}  {alloc:<32}  {flag}".rstrip())
+    if regressions:
+        print(f"\n{len(regressions)} regression(s): " + ", ".join(regressions), file=sys.stderr)
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
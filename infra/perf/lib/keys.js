@@ -0,0 +1,57 @@
+// Распределение ключей запроса, похожее на живой трафик: популярные шоу чаще, последние сезоны
+// чаще первых (смотрят новое), средний уровень погружения чаще крайних, ru — меньшинство.
+// Ключей немного (шоу × сезон × immersion × язык), поэтому кэш API видит горячие ключи так же,
+// как в проде; для прогонов «каждый запрос до ML» — TES_CACHE_ENABLED=false на стороне API.
+//
+// SHOWS=id:сезонов:вес,...  (по умолчанию got:5:1 — единственный датасет в репозитории, ml/data/got.yaml)
+
+const IMMERSION_WEIGHTS = [0.1, 0.2, 0.4, 0.2, 0.1];
+const RU_SHARE = Number(__ENV.RU_SHARE || 0.2);
+
+export function parseShows(spec) {
+  return (spec || 'got:5:1').split(',').map((s) => s.trim()).filter(Boolean).map((s) => {
+    const [id, seasons, weight] = s.split(':');
+    return { id, seasons: Number(seasons || 8), weight: Number(weight || 1) };
+  });
+}
+
+const SHOWS = parseShows(__ENV.SHOWS);
+
+function weighted(items, weightOf) {
+  let total = 0;
+  for (const it of items) total += weightOf(it);
+  let r = Math.random() * total;
+  for (const it of items) {
+    r -= weightOf(it);
+    if (r < 0) return it;
+  }
+  return items[items.length - 1];
+}
+
+// targetSeason 2..seasons, вес растёт линейно к последнему сезону
+function targetSeason(seasons) {
+  if (seasons < 2) return 1;
+  const choices = [];
+  for (let s = 2; s <= seasons; s++) choices.push(s);
+  return weighted(choices, (s) => s - 1);
+}
+
+export function randomKey() {
+  const show = weighted(SHOWS, (s) => s.weight);
+  return {
+    showId: show.id,
+    targetSeason: targetSeason(show.seasons),
+    immersion: 1 + weighted([0, 1, 2, 3, 4], (i) => IMMERSION_WEIGHTS[i]),
+    language: Math.random() < RU_SHARE ? 'ru' : 'en',
+  };
+}
+
+export function keyId(k) {
+  return `${k.showId}:${k.targetSeason}:${k.immersion}:${k.language}`;
+}
+
+// Адрес из пула size адресов с первым октетом prefix: у клиентов и флуда разные prefix, пулы не пересекаются
+export function ipFromPool(prefix, size) {
+  const n = Math.floor(Math.random() * size);
+  return `${prefix}.${(n >> 16) & 255}.${(n >> 8) & 255}.${n & 255}`;
+}
@@ -0,0 +1,95 @@
+// Отчёт прогона: JSON для сравнения между прогонами и короткий markdown для человека.
+// Пишется в REPORT_DIR (по умолчанию infra/perf/reports) как <scenario>-<время>.{json,md};
+// в stdout — тот же markdown, плюс exit code k6 (99) при проваленных порогах.
+
+const REPORT_DIR = __ENV.REPORT_DIR || 'infra/perf/reports';
+
+function value(m, name, stat) {
+  const metric = m[name];
+  return metric && metric.values[stat] !== undefined ? metric.values[stat] : null;
+}
+
+function thresholds(m) {
+  const out = [];
+  for (const [name, metric] of Object.entries(m)) {
+    for (const [expr, res] of Object.entries(metric.thresholds || {})) {
+      out.push({ metric: name, threshold: expr, ok: res.ok });
+    }
+  }
+  return out;
+}
+
+function fmt(x, digits = 1) {
+  return x === null || x === undefined ? '—' : Number(x).toFixed(digits);
+}
+
+export function buildReport(data, scenario, config) {
+  const m = data.metrics;
+  const legit = 'http_req_duration{traffic:legit}';
+  const apiOk = value(m, 'tes_ok', 'passes') || 0;
+  const mlCalls = value(m, 'ml_stub_calls', 'count');
+  const checks = thresholds(m);
+  return {
+    scenario,
+    startedAt: config.startedAt,
+    finishedAt: new Date().toISOString(),
+    config,
+    passed: checks.every((t) => t.ok),
+    thresholds: checks,
+    requests: value(m, 'http_reqs', 'count'),
+    rps: value(m, 'http_reqs', 'rate'),
+    latencyMs: {
+      p50: value(m, legit, 'med'),
+      p95: value(m, legit, 'p(95)'),
+      p99: value(m, legit, 'p(99)'),
+      max: value(m, legit, 'max'),
+    },
+    rates: {
+      error: value(m, 'tes_errors', 'rate'),
+      notModified: value(m, 'tes_not_modified', 'rate'),
+      stale: value(m, 'tes_stale', 'rate'),
+      rateLimitedLegit: value(m, 'tes_rate_limited_legit', 'rate'),
+      rateLimitedFlood: value(m, 'tes_rate_limited_flood', 'rate'),
+      mlUnavailable: value(m, 'tes_ml_unavailable', 'rate'),
+      timeout: value(m, 'tes_timeout', 'rate'),
+    },
+    // вызовы заглушки ML на успешный ответ API: 0 — всё из кэша, 1 — кэш не помогает
+    mlCallsPerOk: mlCalls === null || apiOk === 0 ? null : mlCalls / apiOk,
+    maxVus: value(m, 'vus_max', 'max'),
+  };
+}
+
+export function markdown(r) {
+  const lines = [
+    `# ${r.scenario}: ${r.passed ? 'PASS' : 'FAIL'}`,
+    '',
+    `${r.startedAt} → ${r.finishedAt}, ${r.requests} requests, ${fmt(r.rps)} req/s, max VUs ${r.maxVus}`,
+    '',
+    '| legit latency | p50 | p95 | p99 | max |',
+    '|---|---|---|---|---|',
+    `| ms | ${fmt(r.latencyMs.p50)} | ${fmt(r.latencyMs.p95)} | ${fmt(r.latencyMs.p99)} | ${fmt(r.latencyMs.max)} |`,
+    '',
+    '| rate | value |',
+    '|---|---|',
+  ];
+  for (const [k, v] of Object.entries(r.rates)) {
+    if (v !== null) lines.push(`| ${k} | ${fmt(v * 100, 2)}% |`);
+  }
+  if (r.mlCallsPerOk !== null) lines.push(`| ML calls per 200/304 | ${fmt(r.mlCallsPerOk, 3)} |`);
+  lines.push('', '| threshold | result |', '|---|---|');
+  for (const t of r.thresholds) {
+    lines.push(`| \`${t.metric}\` ${t.threshold} | ${t.ok ? 'ok' : '**failed**'} |`);
+  }
+  return lines.join('\n') + '\n';
+}
+
+export function summaryFiles(data, scenario, config) {
+  const r = buildReport(data, scenario, config);
+  const md = markdown(r);
+  const base = `${REPORT_DIR}/${scenario}-${r.startedAt.replace(/[:.]/g, '-')}`;
+  return {
+    stdout: md,
+    [`${base}.json`]: JSON.stringify(r, null, 2),
+    [`${base}.md`]: md,
+  };
+}
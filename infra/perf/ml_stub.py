@@ -0,0 +1,190 @@
+#!/usr/bin/env python3
+"""Заглушка ML-сервиса для нагрузочных прогонов: тот же контракт POST /recommendations, без модели.
+
+Ответ детерминирован по (showId, targetSeason, immersion): по immersion эпизодов на каждый сезон
+до targetSeason. Задержка — логнормальная с заданными p50/p99, поэтому у API честный хвост,
+а не ровные N мс. Поведение меняется на лету через /__stub/config — так сценарии k6 включают
+замедление и отказ ML посреди прогона:
+
+    python3 infra/perf/ml_stub.py --port 8001 --p50-ms 40 --p99-ms 250
+    curl -XPOST localhost:8001/__stub/config -d '{"mode":"error"}'      # 503 на всё
+    curl -XPOST localhost:8001/__stub/config -d '{"p50_ms":800,"p99_ms":2500}'
+    curl -XPOST localhost:8001/__stub/config -d '{"reset":true}'
+    curl localhost:8001/__stub/stats
+
+Режимы (mode): ok — обычные ответы; error — 503 сразу; hang — держит соединение hang_ms
+(дольше таймаута MlClient); reset — закрывает соединение без ответа. error_rate — доля
+случайных 500 в режиме ok. Только стандартная библиотека: запускается где угодно, где есть Python 3.
+"""
+import argparse
+import json
+import math
+import random
+import threading
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+Z99 = 2.3263  # квантиль 0.99 стандартного нормального
+
+ARCS = ["Main Plot", "Family", "War", "Politics", "Romance", "Mystery"]
+
+
+class StubState:
+    """Текущая конфигурация и счётчики; меняется из /__stub/config, читается каждым запросом."""
+
+    def __init__(self, defaults):
+        self.defaults = dict(defaults)
+        self.lock = threading.Lock()
+        self.config = dict(defaults)
+        self.stats = {}
+
+    def update(self, changes):
+        with self.lock:
+            if changes.pop("reset", False):
+                self.config = dict(self.defaults)
+            unknown = set(changes) - set(self.defaults)
+            if unknown:
+                raise ValueError("unknown keys: " + ", ".join(sorted(unknown)))
+            if "mode" in changes and changes["mode"] not in ("ok", "error", "hang", "reset"):
+                raise ValueError("mode must be ok|error|hang|reset")
+            self.config.update(changes)
+            return dict(self.config)
+
+    def snapshot(self):
+        with self.lock:
+            return dict(self.config)
+
+    def count(self, outcome):
+        with self.lock:
+            self.stats[outcome] = self.stats.get(outcome, 0) + 1
+
+    def stats_snapshot(self):
+        with self.lock:
+            return dict(self.stats)
+
+
+def latency_seconds(p50_ms, p99_ms):
+    """Логнормальная задержка: медиана p50_ms, 99-й перцентиль p99_ms."""
+    if p50_ms <= 0:
+        return 0.0
+    sigma = max(0.0, math.log(max(p99_ms, p50_ms) / p50_ms) / Z99)
+    return random.lognormvariate(math.log(p50_ms), sigma) / 1000.0
+
+
+def recommendations(show_id, target_season, immersion):
+    rnd = random.Random(f"{show_id}:{target_season}:{immersion}")
+    out = {}
+    for season in range(1, max(1, target_season)):
+        episodes = sorted(rnd.sample(range(1, 11), k=min(10, max(1, immersion))))
+        out[str(season)] = [
+            {
+                "id": f"{show_id}-s{season:02d}e{ep:02d}",
+                "season": season,
+                "episode": ep,
+                "title": f"{show_id} {season}x{ep}",
+                "arcs": rnd.sample(ARCS, k=2),
+            }
+            for ep in episodes
+        ]
+    return {"recommendations": out}
+
+
+class StubServer(ThreadingHTTPServer):
+    daemon_threads = True
+    # очередь accept по умолчанию (5) под всплеском режет соединения раньше, чем API успеет их открыть
+    request_queue_size = 1024
+
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+    state: StubState = None
+
+    def log_message(self, fmt, *args):  # access-лог на каждый запрос под нагрузкой не нужен
+        pass
+
+    def _json(self, status, body):
+        data = json.dumps(body).encode("utf-8")
+        self.send_response(status)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(data)))
+        self.end_headers()
+        self.wfile.write(data)
+
+    def _body(self):
+        length = int(self.headers.get("Content-Length") or 0)
+        raw = self.rfile.read(length) if length else b""
+        return json.loads(raw or b"{}")
+
+    def do_GET(self):
+        if self.path == "/health":
+            self._json(200, {"status": "UP", "ready": True, "version": "stub"})
+        elif self.path == "/__stub/config":
+            self._json(200, self.state.snapshot())
+        elif self.path == "/__stub/stats":
+            self._json(200, self.state.stats_snapshot())
+        else:
+            self._json(404, {"detail": "not found"})
+
+    def do_POST(self):
+        if self.path == "/__stub/config":
+            try:
+                self._json(200, self.state.update(self._body()))
+            except (ValueError, json.JSONDecodeError) as e:
+                self._json(400, {"detail": str(e)})
+            return
+        if self.path != "/recommendations":
+            self._json(404, {"detail": "not found"})
+            return
+
+        payload = self._body()
+        cfg = self.state.snapshot()
+        mode = cfg["mode"]
+        if mode == "error":
+            self.state.count("error")
+            self._json(503, {"detail": "stub outage"})
+            return
+        if mode == "reset":
+            self.state.count("reset")
+            self.close_connection = True
+            return
+        if mode == "hang":
+            self.state.count("hang")
+            time.sleep(cfg["hang_ms"] / 1000.0)
+            self._json(503, {"detail": "stub hang"})
+            return
+
+        time.sleep(latency_seconds(cfg["p50_ms"], cfg["p99_ms"]))
+        if cfg["error_rate"] > 0 and random.random() < cfg["error_rate"]:
+            self.state.count("failed")
+            self._json(500, {"detail": "stub random failure"})
+            return
+        self.state.count("ok")
+        self._json(200, recommendations(str(payload.get("showId") or "got"),
+                                        int(payload.get("targetSeason") or 2),
+                                        int(payload.get("immersion") or 3)))
+
+
+def main(argv=None):
+    ap = argparse.ArgumentParser(description="TES ML stub for load tests")
+    ap.add_argument("--host", default="0.0.0.0")
+    ap.add_argument("--port", type=int, default=8000)
+    ap.add_argument("--p50-ms", type=float, default=40.0)
+    ap.add_argument("--p99-ms", type=float, default=250.0)
+    ap.add_argument("--error-rate", type=float, default=0.0)
+    ap.add_argument("--hang-ms", type=float, default=10_000.0)
+    args = ap.parse_args(argv)
+
+    Handler.state = StubState({
+        "mode": "ok",
+        "p50_ms": args.p50_ms,
+        "p99_ms": args.p99_ms,
+        "error_rate": args.error_rate,
+        "hang_ms": args.hang_ms,
+    })
+    server = StubServer((args.host, args.port), Handler)
+    print(f"ml stub on {args.host}:{args.port} {Handler.state.snapshot()}", flush=True)
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,252 @@
+// Нагрузочный набор для API: реалистичные ключи, open-model нагрузка, всплески, замедление и отказ ML,
+// флуд с множества IP против RateLimitFilter. Прогон проходит или падает по порогам p95/p99 и доле
+// ошибок (k6 выходит с кодом 99), отчёт — в infra/perf/reports (lib/report.js).
+//
+// ML подменяется заглушкой с управляемой задержкой (ml_stub.py), API ходит в неё через TES_ML_ENDPOINTS:
+//
+//   TES_ML_ENDPOINTS=http://ml-stub:8000 RATELIMIT_PERIP_CAPACITY=100000 \
+//     docker compose -f infra/docker-compose.yml --profile perf up api ml-stub
+//   k6 run -e SCENARIO=steady infra/perf/suite.js
+//
+// Для ip-flood — без RATELIMIT_PERIP_CAPACITY (боевые 60): иначе флуду нечему отказывать.
+//
+// SCENARIO:
+//   steady     — постоянный поток RATE req/s в течение DURATION
+//   ramp       — рост от RATE до PEAK ступенями; ищет, где ломается p99
+//   spike      — RATE, затем резкий скачок до PEAK на 30s и обратно
+//   ml-slow    — steady; с 1m по 3m заглушка отвечает с p50 800ms / p99 2500ms
+//   ml-outage  — steady; с 1m по 2m заглушка отдаёт 503 на всё (ответы — из кэша и last-known-good)
+//   ip-flood   — steady от клиентов + FLOOD_RATE req/s с FLOOD_IPS разных адресов (X-Forwarded-For);
+//                RATELIMIT_PERIP_CAPACITY оставить боевым (60), клиентский пул LEGIT_IPS его не исчерпывает.
+//                Мало адресов (FLOOD_IPS=50) — флуд упирается в 429; много — проверка вытеснения ключей
+//                (ratelimit.bucket4j.max-keys) и того, что клиенты не получают чужие 429
+//
+// В ml-slow и ml-outage горячие ключи отдаёт кэш, и ML почти не виден; чтобы каждый запрос доходил
+// до заглушки, API запускается с TES_CACHE_ENABLED=false (остаётся last-known-good).
+//
+// Пороги по умолчанию — у каждого сценария свои (THRESHOLDS); P95_MS, P99_MS, ERROR_RATE переопределяют их.
+import http from 'k6/http';
+import { check, fail, sleep } from 'k6';
+import { Counter, Rate } from 'k6/metrics';
+import { ipFromPool, keyId, randomKey } from './lib/keys.js';
+import { summaryFiles } from './lib/report.js';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const STUB_URL = __ENV.STUB_URL || 'http://localhost:8001';
+const SCENARIO = __ENV.SCENARIO || 'steady';
+const RATE = Number(__ENV.RATE || 100);
+const PEAK = Number(__ENV.PEAK || 1000);
+const DURATION = __ENV.DURATION || '5m';
+const MAX_VUS = Number(__ENV.MAX_VUS || 2000);
+const LEGIT_IPS = Number(__ENV.LEGIT_IPS || 5000);
+const FLOOD_IPS = Number(__ENV.FLOOD_IPS || 200000);
+const FLOOD_RATE = Number(__ENV.FLOOD_RATE || 2000);
+// доля запросов, повторённых с If-None-Match (браузер с ответом в кэше)
+const REVALIDATE_SHARE = Number(__ENV.REVALIDATE_SHARE || 0.3);
+
+const THRESHOLDS = {
+  steady: { p95: 300, p99: 800, errors: 0.01 },
+  ramp: { p95: 500, p99: 1500, errors: 0.02 },
+  spike: { p95: 500, p99: 2000, errors: 0.02 },
+  'ml-slow': { p95: 1000, p99: 4500, errors: 0.05 },
+  'ml-outage': { p95: 300, p99: 1000, errors: 0.05 },
+  'ip-flood': { p95: 300, p99: 800, errors: 0.01 },
+};
+
+if (!THRESHOLDS[SCENARIO]) {
+  throw new Error(`unknown SCENARIO=${SCENARIO}, expected one of ${Object.keys(THRESHOLDS).join(', ')}`);
+}
+
+const limits = {
+  p95: Number(__ENV.P95_MS || THRESHOLDS[SCENARIO].p95),
+  p99: Number(__ENV.P99_MS || THRESHOLDS[SCENARIO].p99),
+  errors: Number(__ENV.ERROR_RATE || THRESHOLDS[SCENARIO].errors),
+};
+
+// Исходы клиентских запросов (traffic:legit); ошибка — всё, кроме 200 и 304
+const okRate = new Rate('tes_ok');
+const errors = new Rate('tes_errors');
+const notModified = new Rate('tes_not_modified');
+const stale = new Rate('tes_stale');
+const rateLimitedLegit = new Rate('tes_rate_limited_legit');
+const mlUnavailable = new Rate('tes_ml_unavailable');
+const timeouts = new Rate('tes_timeout');
+const rateLimitedFlood = new Rate('tes_rate_limited_flood');
+const mlStubCalls = new Counter('ml_stub_calls');
+
+function constant(rate, duration, exec, tags, startTime = '0s') {
+  return {
+    executor: 'constant-arrival-rate',
+    rate,
+    timeUnit: '1s',
+    duration,
+    startTime,
+    preAllocatedVUs: Math.min(MAX_VUS, Math.max(10, Math.ceil(rate / 10))),
+    maxVUs: MAX_VUS,
+    exec,
+    tags,
+  };
+}
+
+// Одна итерация chaos-функции в startTime: меняет поведение заглушки на время сценария
+function chaos(exec, startTime) {
+  return { executor: 'per-vu-iterations', vus: 1, iterations: 1, startTime, maxDuration: '10m', exec };
+}
+
+function scenarios() {
+  const legit = { traffic: 'legit' };
+  switch (SCENARIO) {
+    case 'steady':
+      return { traffic: constant(RATE, DURATION, 'browse', legit) };
+    case 'ramp':
+      return {
+        traffic: {
+          executor: 'ramping-arrival-rate',
+          startRate: RATE,
+          timeUnit: '1s',
+          preAllocatedVUs: Math.ceil(RATE / 10),
+          maxVUs: MAX_VUS,
+          exec: 'browse',
+          tags: legit,
+          stages: [
+            { target: RATE, duration: '1m' },
+            { target: Math.round(PEAK / 4), duration: '2m' },
+            { target: Math.round(PEAK / 2), duration: '2m' },
+            { target: PEAK, duration: '2m' },
+            { target: PEAK, duration: '1m' },
+          ],
+        },
+      };
+    case 'spike':
+      return {
+        traffic: {
+          executor: 'ramping-arrival-rate',
+          startRate: RATE,
+          timeUnit: '1s',
+          preAllocatedVUs: Math.ceil(PEAK / 10),
+          maxVUs: MAX_VUS,
+          exec: 'browse',
+          tags: legit,
+          stages: [
+            { target: RATE, duration: '1m' },
+            { target: PEAK, duration: '5s' },
+            { target: PEAK, duration: '30s' },
+            { target: RATE, duration: '5s' },
+            { target: RATE, duration: '1m30s' },
+          ],
+        },
+      };
+    case 'ml-slow':
+      return { traffic: constant(RATE, DURATION, 'browse', legit), chaos: chaos('mlSlow', '1m') };
+    case 'ml-outage':
+      return { traffic: constant(RATE, DURATION, 'browse', legit), chaos: chaos('mlOutage', '1m') };
+    case 'ip-flood':
+      return {
+        traffic: constant(RATE, DURATION, 'browse', legit),
+        flood: constant(FLOOD_RATE, '2m', 'flood', { traffic: 'flood' }, '1m'),
+      };
+  }
+}
+
+export const options = {
+  scenarios: scenarios(),
+  discardResponseBodies: true,
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    'http_req_duration{traffic:legit}': [`p(95)<${limits.p95}`, `p(99)<${limits.p99}`],
+    tes_errors: [`rate<${limits.errors}`],
+    // флуд не должен задевать клиентов: их 429 — не больше 0.1%
+    tes_rate_limited_legit: ['rate<0.001'],
+  },
+};
+
+const params = (ip, etag, tags) => ({
+  headers: Object.assign(
+    { 'Content-Type': 'application/json', 'X-Forwarded-For': ip },
+    etag ? { 'If-None-Match': etag } : {},
+  ),
+  tags,
+  // 429/503/504 — ожидаемые исходы, их считает не http_req_failed, а свои Rate
+  responseCallback: http.expectedStatuses(200, 304, 429, 503, 504),
+});
+
+// ETag последних ответов по ключу — на VU, как кэш одного браузера
+const etags = {};
+
+function stubConfig(body) {
+  const res = http.post(`${STUB_URL}/__stub/config`, JSON.stringify(body), {
+    headers: { 'Content-Type': 'application/json' },
+    tags: { traffic: 'control' },
+  });
+  if (res.status !== 200) fail(`ML stub at ${STUB_URL} did not accept ${JSON.stringify(body)}: ${res.status}`);
+}
+
+function stubCalls() {
+  const res = http.get(`${STUB_URL}/__stub/stats`, { tags: { traffic: 'control' }, responseType: 'text' });
+  if (res.status !== 200) return null;
+  const stats = res.json();
+  return Object.values(stats).reduce((a, b) => a + b, 0);
+}
+
+export function setup() {
+  const needsStub = SCENARIO === 'ml-slow' || SCENARIO === 'ml-outage';
+  const health = http.get(`${STUB_URL}/health`, { tags: { traffic: 'control' } });
+  if (health.status === 200) {
+    stubConfig({ reset: true });
+  } else if (needsStub) {
+    fail(`SCENARIO=${SCENARIO} needs the ML stub at ${STUB_URL} (infra/perf/ml_stub.py)`);
+  }
+  return { startedAt: new Date().toISOString(), stubCalls: health.status === 200 ? stubCalls() : null };
+}
+
+export function teardown(data) {
+  if (data.stubCalls === null) return;
+  stubConfig({ reset: true });
+  const calls = stubCalls();
+  if (calls !== null) mlStubCalls.add(calls - data.stubCalls);
+}
+
+export function browse() {
+  const key = randomKey();
+  const id = keyId(key);
+  const etag = Math.random() < REVALIDATE_SHARE ? etags[id] : undefined;
+  const res = http.post(`${BASE_URL}/recommendations`, JSON.stringify(key),
+    params(ipFromPool('10', LEGIT_IPS), etag, { traffic: 'legit' }));
+
+  const ok = res.status === 200 || res.status === 304;
+  okRate.add(ok);
+  errors.add(!ok);
+  notModified.add(res.status === 304);
+  stale.add(res.headers['X-Tes-Stale'] === 'true');
+  rateLimitedLegit.add(res.status === 429);
+  mlUnavailable.add(res.status === 503);
+  timeouts.add(res.status === 504);
+  if (res.status === 200 && res.headers.Etag) etags[id] = res.headers.Etag;
+  check(res, { 'status is 200/304': () => ok });
+}
+
+export function flood() {
+  const res = http.post(`${BASE_URL}/recommendations`, JSON.stringify(randomKey()),
+    params(ipFromPool('100', FLOOD_IPS), undefined, { traffic: 'flood' }));
+  rateLimitedFlood.add(res.status === 429);
+}
+
+export function mlSlow() {
+  stubConfig({ p50_ms: 800, p99_ms: 2500 });
+  sleep(120);
+  stubConfig({ reset: true });
+}
+
+export function mlOutage() {
+  stubConfig({ mode: 'error' });
+  sleep(60);
+  stubConfig({ reset: true });
+}
+
+export function handleSummary(data) {
+  const startedAt = (data.setup_data && data.setup_data.startedAt) || new Date().toISOString();
+  return summaryFiles(data, SCENARIO, {
+    startedAt, baseUrl: BASE_URL, rate: RATE, peak: PEAK, duration: DURATION, limits,
+    legitIps: LEGIT_IPS, floodIps: FLOOD_IPS, floodRate: FLOOD_RATE, revalidateShare: REVALIDATE_SHARE,
+  });
+}
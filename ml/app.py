@@ -11,6 +11,13 @@ from pydantic import BaseModel, Field
 
 from ml.logic import recommend_minimal
 
+try:  # CBOR — по Accept: application/cbor; без cbor2 всегда отвечаем JSON
+    import cbor2
+except ImportError:  # pragma: no cover
+    cbor2 = None
+
+CBOR_MEDIA_TYPE = "application/cbor"
+
 APP_NAME = "tes-ml"
 VERSION = os.getenv("ML_VERSION", "0.1.0")
 ALLOWED_ORIGINS = os.getenv("ALLOWED_ORIGINS", "*").split(",")
@@ -166,8 +173,27 @@ def _load_episodes_from_yaml(path: str) -> List[Dict[str, Any]]:
 
 
 # ---------- Routes ----------
-@app.post("/recommendations", response_model=RecommendOut)
-def recommendations(inp: RecommendIn):
+def _wants_cbor(accept: str) -> bool:
+    """CBOR, если клиент назвал application/cbor в Accept с q > 0."""
+    if cbor2 is None or not accept:
+        return False
+    for part in accept.split(","):
+        media, *params = [p.strip() for p in part.split(";")]
+        if media.lower() != CBOR_MEDIA_TYPE:
+            continue
+        q = 1.0
+        for p in params:
+            if p.startswith("q="):
+                try:
+                    q = float(p[2:])
+                except ValueError:
+                    q = 0.0
+        return q > 0
+    return False
+
+
+def recommendations(inp: RecommendIn) -> RecommendOut:
+    """Рекомендации без HTTP: общий код роута и tools/export_parity_fixtures.py."""
     # эпизоды из запроса или из DATA_PATH
     eps = [e.model_dump() for e in (inp.episodes or [])]
     if not eps:
@@ -194,4 +220,14 @@ def recommendations(inp: RecommendIn):
             )
             for x in items
         ]
-    return RecommendOut(recommendations=out)
\ No newline at end of file
+    return RecommendOut(recommendations=out)
+
+
+@app.post("/recommendations", response_model=RecommendOut)
+def recommendations_route(inp: RecommendIn, request: Request):
+    body = recommendations(inp)
+    if _wants_cbor(request.headers.get("accept", "")):
+        # ключи сезонов строками, как в JSON
+        payload = {str(k): [e.model_dump() for e in v] for k, v in body.recommendations.items()}
+        return Response(content=cbor2.dumps({"recommendations": payload}), media_type=CBOR_MEDIA_TYPE)
+    return body
\ No newline at end of file
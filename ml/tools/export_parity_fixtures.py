@@ -0,0 +1,39 @@
+"""
+Эталонные ответы POST /recommendations для parity-теста встроенного Java-движка
+(api/src/test/java/com/tes/api/engine/EngineParityTest.java).
+
+Прогоняет весь ключевой набор (targetSeason × immersion) через тот же код, что и HTTP-роут:
+
+    DATA_PATH=ml/data/got.yaml python -m ml.tools.export_parity_fixtures got \
+        > api/src/test/resources/parity/got.json
+"""
+from __future__ import annotations
+
+import json
+import sys
+
+from ml.app import DATA_PATH, RecommendIn, _load_episodes_from_yaml, recommendations
+
+IMMERSIONS = range(1, 6)
+
+
+def main(show_id: str) -> None:
+    episodes = _load_episodes_from_yaml(DATA_PATH)
+    max_season = max((int(ep.get("season", 0)) for ep in episodes), default=0)
+
+    cases = []
+    for target in range(1, max_season + 2):
+        for immersion in IMMERSIONS:
+            out = recommendations(RecommendIn(showId=show_id, targetSeason=target, immersion=immersion))
+            recs = {
+                str(season): [ep.model_dump() for ep in eps]
+                for season, eps in out.recommendations.items()
+            }
+            cases.append({"targetSeason": target, "immersion": immersion, "recommendations": recs})
+
+    json.dump({"showId": show_id, "cases": cases}, sys.stdout, ensure_ascii=False, indent=1)
+    sys.stdout.write("\n")
+
+
+if __name__ == "__main__":
+    main(sys.argv[1] if len(sys.argv) > 1 else "got")